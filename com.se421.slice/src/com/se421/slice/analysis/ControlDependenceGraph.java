@@ -1,15 +1,21 @@
 package com.se421.slice.analysis;
 
+import java.util.EnumSet;
+
 import com.ensoftcorp.atlas.core.db.graph.Edge;
 import com.ensoftcorp.atlas.core.db.graph.Graph;
 import com.ensoftcorp.atlas.core.db.graph.Node;
 import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
 import com.ensoftcorp.atlas.core.db.set.AtlasSet;
 import com.ensoftcorp.atlas.core.query.Q;
-import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.script.Common;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.utilities.CommonQueries;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.analysis.utilities.dominance.PostDominatorTree;
 import com.se421.slice.codemap.DominanceAnalysis;
+import com.se421.slice.codemap.DominanceAnalysis.Relation;
+import com.se421.slice.preferences.SlicePreferences;
 
 /**
  * Constructs the Control Dependence Graph (CGD) from a given Control Flow Graph (CFG)
@@ -43,32 +49,99 @@ public class ControlDependenceGraph extends DependenceGraph {
 		}
 		
 		
-		AtlasSet<Edge> controlDependenceEdgeSet = new AtlasHashSet<Edge>();
-		AtlasSet<Edge> dominanceFrontierEdges = DominanceAnalysis.getPostDominanceFrontierEdges().eval().edges();
+		this.cfg = cfg;
 		
-		// TODO: implement
-		// for each edge in the dominance frontier edges (x --pdomf--> y)
-		// find or create a a control dependence edge from the successor to the predecessor (y --control-dependence--> x)
-		// add the resulting edge to the controlDependenceEdgeSet
+		AtlasSet<Node> statements = cfg.nodes();
+		DependenceEdgeIndex controlDependenceEdges = new DependenceEdgeIndex(CONTROL_DEPENDENCE_EDGE);
+		AtlasSet<Node> functions = getContainingFunctions(statements);
+		for(Node function : functions){
+			Graph functionCfg = cfg;
+			if(functions.size() > 1){
+				functionCfg = Common.toQ(cfg).intersection(CommonQueries.excfg(function)).eval();
+			}
+			if(isSubgraph(functionCfg, CommonQueries.cfg(function).eval())){
+				addControlDependenceEdges(controlDependenceEdges, statements, DominanceAnalysis.getDominance(function, EnumSet.of(Relation.POST_DOMINANCE_FRONTIER)));
+			} else if(isSubgraph(functionCfg, CommonQueries.excfg(function).eval())){
+				addControlDependenceEdges(controlDependenceEdges, statements, DominanceAnalysis.getDominance(function, EnumSet.of(Relation.EXCEPTIONAL_POST_DOMINANCE_FRONTIER)));
+			} else {
+				addControlDependenceEdges(controlDependenceEdges, functionCfg);
+			}
+		}
 		
-		this.cdg = Common.toQ(controlDependenceEdgeSet).eval();
+		// create the missing control dependence edges in one pass
+		this.cdg = Common.toQ(controlDependenceEdges.commit()).eval();
 	}
-
+	
+	/**
+	 * For each edge in the memoized post-dominance frontier (x --pdomf--> y)
+	 * requests a control dependence edge from the successor to the
+	 * predecessor (y --control-dependence--> x)
+	 * @param controlDependenceEdges
+	 * @param statements
+	 * @param dominanceFrontier
+	 */
+	private static void addControlDependenceEdges(DependenceEdgeIndex controlDependenceEdges, AtlasSet<Node> statements, Graph dominanceFrontier) {
+		for(Edge dominanceFrontierEdge : dominanceFrontier.edges()){
+			// skip statements of the function that are not in the given graph
+			if(statements.contains(dominanceFrontierEdge.from())){
+				controlDependenceEdges.add(dominanceFrontierEdge.to(), dominanceFrontierEdge.from());
+			}
+		}
+	}
+	
 	/**
-	 * Finds or creates a control dependence edge
-	 * @param controlDependenceEdgeSet
-	 * @param fromStatement
-	 * @param toStatement
+	 * Requests the control dependence edges of an ad-hoc control flow graph
+	 * that is not a subgraph of its function's graph directly from the
+	 * frontier of a post-dominator tree over the graph, so no derived
+	 * frontier edges are written under the tag shared with the function's
+	 * memoized frontier.
+	 * @param controlDependenceEdges
+	 * @param cfg
 	 */
-	private Edge findOrCreateControlDependenceEdge(Node fromStatement, Node toStatement) {
-		Q controlDependenceEdges = Query.universe().edges(CONTROL_DEPENDENCE_EDGE);
-		Edge controlDependenceEdge = controlDependenceEdges.betweenStep(Common.toQ(fromStatement), Common.toQ(toStatement)).eval().edges().one();
-		if(controlDependenceEdge == null){
-			controlDependenceEdge = Graph.U.createEdge(fromStatement, toStatement);
-			controlDependenceEdge.tag(CONTROL_DEPENDENCE_EDGE);
-			controlDependenceEdge.putAttr(XCSG.name, CONTROL_DEPENDENCE_EDGE);
+	private static void addControlDependenceEdges(DependenceEdgeIndex controlDependenceEdges, Graph cfg) {
+		AtlasSet<Node> roots = Common.toQ(cfg).nodes(XCSG.controlFlowRoot).eval().nodes();
+		if(roots.isEmpty()){
+			roots = Common.toQ(cfg).roots().eval().nodes();
+		}
+		AtlasSet<Node> exits = Common.toQ(cfg).nodes(XCSG.controlFlowExitPoint).eval().nodes();
+		if(exits.isEmpty()){
+			exits = Common.toQ(cfg).leaves().eval().nodes();
+		}
+		IndexedGraph index = IndexedGraph.build(cfg.nodes(), cfg.edges(), roots, exits);
+		PostDominatorTree tree = new PostDominatorTree(index, SlicePreferences.getDominatorAlgorithm());
+		for(int id=0; id<index.size(); id++){
+			Node node = index.getNode(id);
+			if(node == null){
+				continue;
+			}
+			for(int frontier : tree.getDominanceFrontier(id)){
+				Node frontierNode = index.getNode(frontier);
+				if(frontierNode != null){
+					controlDependenceEdges.add(frontierNode, node);
+				}
+			}
+		}
+	}
+	
+	private static AtlasSet<Node> getContainingFunctions(AtlasSet<Node> statements) {
+		AtlasSet<Node> functions = new AtlasHashSet<Node>();
+		for(Node statement : statements){
+			Node function = CommonQueries.getContainingFunction(statement);
+			if(function != null){
+				functions.add(function);
+			}
+		}
+		return functions;
+	}
+	
+	private static boolean isSubgraph(Graph cfg, Graph functionCfg) {
+		AtlasSet<Edge> functionEdges = functionCfg.edges();
+		for(Edge edge : cfg.edges()){
+			if(!functionEdges.contains(edge)){
+				return false;
+			}
 		}
-		return controlDependenceEdge;
+		return true;
 	}
 	
 	public Q getControlFlowGraph(){
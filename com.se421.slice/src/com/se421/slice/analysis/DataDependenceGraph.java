@@ -3,10 +3,7 @@ package com.se421.slice.analysis;
 import com.ensoftcorp.atlas.core.db.graph.Edge;
 import com.ensoftcorp.atlas.core.db.graph.Graph;
 import com.ensoftcorp.atlas.core.db.graph.Node;
-import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
-import com.ensoftcorp.atlas.core.db.set.AtlasSet;
 import com.ensoftcorp.atlas.core.query.Q;
-import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.script.Common;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
 import com.se421.slice.log.Log;
@@ -31,19 +28,22 @@ public class DataDependenceGraph extends DependenceGraph {
 		
 		this.dfg = dfg;
 		
+		// resolves the statement of each data flow node without a graph query
+		StatementIndex statements = StatementIndex.getStatementIndex(dfg);
+		
 		// for each data flow edge summarize its data dependence relationship at the statement level
-		AtlasSet<Edge> dataDependenceEdgeSet = new AtlasHashSet<Edge>();
+		DependenceEdgeIndex dataDependenceEdges = new DependenceEdgeIndex(DATA_DEPENDENCE_EDGE);
 		for(Edge dfEdge : dfg.edges()){
 			Node from = dfEdge.from();
 			Node fromStatement = from;
 			if(!fromStatement.taggedWith(XCSG.Identity) && !fromStatement.taggedWith(XCSG.Parameter)){
-				fromStatement = getStatement(from);
+				fromStatement = statements.getStatement(from);
 			}
 			
 			Node to = dfEdge.to();
 			Node toStatement = to;
 			if(!toStatement.taggedWith(XCSG.ReturnValue)){
-				toStatement = getStatement(to);
+				toStatement = statements.getStatement(to);
 			}
 			
 			// sanity checks
@@ -56,117 +56,89 @@ public class DataDependenceGraph extends DependenceGraph {
 				continue;
 			}
 			
-			// TODO: implement
-			// If the fromStatement is not the toStatement (all statements are trivially dependent on themselves) 
-			// then find or create a data dependence edge from the fromStatement to the toStatement. Add the 
-			// resulting edge to the set of data dependence edges.
-			//
-			// Note: node equality can be checked with node1.equals(node2)
-			// Note: a findOrCreateDataDependenceEdge(fromStatement, toStatement) has been implemented for you
-			// Note: the dataDependenceEdgeSet is used to track newly added edges so remember to add edges you create there
+			// all statements are trivially dependent on themselves
+			if(!fromStatement.equals(toStatement)){
+				dataDependenceEdges.add(fromStatement, toStatement);
+			}
 		}
 		
 		///////////// Some Additional Edge Cases Are Handled For You Below ///////////// 
 		
-		// consider data dependencies on parameters, returns, and fields
-		Q interproceduralDataFlowEdges = Query.universe().edges(XCSG.InterproceduralDataFlow);
-		Q fields = Query.universe().nodes(XCSG.Field, XCSG.ArrayComponents);
-		Q parameters = Query.universe().nodes(XCSG.Parameter);
-		Q returns = Query.universe().nodes(XCSG.Return);
-		Q localDFG = Common.toQ(dfg).difference(parameters, returns);
-		for(Node field : interproceduralDataFlowEdges.between(fields, localDFG).nodes(XCSG.Field).eval().nodes()){
-			for(Node localDFNode : interproceduralDataFlowEdges.forward(Common.toQ(field)).intersection(localDFG).eval().nodes()){
-				Node toStatement = localDFNode;
-				if(!toStatement.taggedWith(XCSG.ReturnValue)){
-					toStatement = getStatement(localDFNode);
-				}
-				Node fromStatement = field;
-				
-				if(fromStatement == null || toStatement == null || fromStatement.equals(toStatement)){
-					continue;
-				}
-				
-				Q dataDependenceEdges = Query.universe().edges(DATA_DEPENDENCE_EDGE);
-				Edge dataDependenceEdge = dataDependenceEdges.betweenStep(Common.toQ(fromStatement), Common.toQ(toStatement)).eval().edges().one();
-				if(dataDependenceEdge == null){
-					dataDependenceEdge = Graph.U.createEdge(fromStatement, toStatement);
-					dataDependenceEdge.tag(DATA_DEPENDENCE_EDGE);
-					dataDependenceEdge.putAttr(XCSG.name, DATA_DEPENDENCE_EDGE);
+		// consider data dependencies on fields and array references in a single sweep over the
+		// incoming edges of each data flow node, dispatched on the tag of the edge
+		IncomingDependence[] dependences = IncomingDependence.values();
+		for(Node to : dfg.nodes()){
+			for(Edge edge : to.in()){
+				for(IncomingDependence dependence : dependences){
+					if(!edge.taggedWith(dependence.edgeTag) || !dependence.appliesTo(edge.from(), to)){
+						continue;
+					}
+					Node fromStatement = dependence.getFromStatement(edge.from(), statements);
+					Node toStatement = dependence.getToStatement(to, statements);
+					if(fromStatement == null || toStatement == null || fromStatement.equals(toStatement)){
+						continue;
+					}
+					dataDependenceEdges.add(fromStatement, toStatement);
 				}
-				dataDependenceEdgeSet.add(dataDependenceEdge);
 			}
 		}
 		
-		// add data dependencies for array references
-		Q arrayIdentityForEdges = Query.universe().edges(XCSG.ArrayIdentityFor);
-		for(Node arrayRead : Common.toQ(dfg).nodes(XCSG.ArrayRead).eval().nodes()){
-			for(Node arrayIdentityFor : arrayIdentityForEdges.predecessors(Common.toQ(arrayRead)).eval().nodes()){
-				Node fromStatement = arrayIdentityFor;
-				if(!fromStatement.taggedWith(XCSG.Parameter) && !fromStatement.taggedWith(XCSG.Field)){
-					fromStatement = getStatement(arrayIdentityFor);
-				}
-				
-				Node toStatement = getStatement(arrayRead);
-				
-				if(fromStatement == null || toStatement == null || fromStatement.equals(toStatement)){
-					continue;
-				}
-				
-				Q dataDependenceEdges = Query.universe().edges(DATA_DEPENDENCE_EDGE);
-				Edge dataDependenceEdge = dataDependenceEdges.betweenStep(Common.toQ(fromStatement), Common.toQ(toStatement)).eval().edges().one();
-				if(dataDependenceEdge == null){
-					dataDependenceEdge = Graph.U.createEdge(fromStatement, toStatement);
-					dataDependenceEdge.tag(DATA_DEPENDENCE_EDGE);
-					dataDependenceEdge.putAttr(XCSG.name, DATA_DEPENDENCE_EDGE);
-				}
-				dataDependenceEdgeSet.add(dataDependenceEdge);
+		// create the missing data dependence edges in one pass
+		this.ddg = Common.toQ(dataDependenceEdges.commit()).eval();
+	}
+
+	/**
+	 * The data dependencies that are not local data flow edges, by the tag of
+	 * the edge into the dependent data flow node
+	 */
+	private static enum IncomingDependence {
+		/**
+		 * A read of a field (field --interprocedural-data-flow--> node)
+		 */
+		FIELD(XCSG.InterproceduralDataFlow, true),
+		
+		/**
+		 * The array of an array read (array --array-identity-for--> read)
+		 */
+		ARRAY_IDENTITY(XCSG.ArrayIdentityFor, false),
+		
+		/**
+		 * The index of an array read (index --array-index-for--> read)
+		 */
+		ARRAY_INDEX(XCSG.ArrayIndexFor, false);
+		
+		private final String edgeTag;
+		private final boolean field;
+		
+		private IncomingDependence(String edgeTag, boolean field){
+			this.edgeTag = edgeTag;
+			this.field = field;
+		}
+		
+		/**
+		 * Returns true if an edge with this tag between the given nodes is a
+		 * data dependence
+		 */
+		private boolean appliesTo(Node from, Node to){
+			if(field){
+				return from.taggedWith(XCSG.Field) && !to.taggedWith(XCSG.Parameter) && !to.taggedWith(XCSG.Return);
 			}
+			return to.taggedWith(XCSG.ArrayRead);
 		}
 		
-		// add data dependencies for array indexes
-		Q arrayIndexForEdges = Query.universe().edges(XCSG.ArrayIndexFor);
-		for(Node arrayRead : Common.toQ(dfg).nodes(XCSG.ArrayRead).eval().nodes()){
-			for(Node arrayIndexFor : arrayIndexForEdges.predecessors(Common.toQ(arrayRead)).eval().nodes()){
-				Node fromStatement = arrayIndexFor;
-				if(!fromStatement.taggedWith(XCSG.Parameter) && !fromStatement.taggedWith(XCSG.Field)){
-					fromStatement = getStatement(arrayIndexFor);
-				}
-				
-				Node toStatement = getStatement(arrayRead);
-				
-				if(fromStatement == null || toStatement == null || fromStatement.equals(toStatement)){
-					continue;
-				}
-				
-				Q dataDependenceEdges = Query.universe().edges(DATA_DEPENDENCE_EDGE);
-				Edge dataDependenceEdge = dataDependenceEdges.betweenStep(Common.toQ(fromStatement), Common.toQ(toStatement)).eval().edges().one();
-				if(dataDependenceEdge == null){
-					dataDependenceEdge = Graph.U.createEdge(fromStatement, toStatement);
-					dataDependenceEdge.tag(DATA_DEPENDENCE_EDGE);
-					dataDependenceEdge.putAttr(XCSG.name, DATA_DEPENDENCE_EDGE);
-				}
-				dataDependenceEdgeSet.add(dataDependenceEdge);
+		private Node getFromStatement(Node from, StatementIndex statements){
+			if(field || from.taggedWith(XCSG.Parameter) || from.taggedWith(XCSG.Field)){
+				return from;
 			}
+			return statements.getStatement(from);
 		}
 		
-		this.ddg = Common.toQ(dataDependenceEdgeSet).eval();
-	}
-
-	/**
-	 * Finds or creates a data dependence edge
-	 * @param fromStatement
-	 * @param toStatement
-	 * @return
-	 */
-	private Edge findOrCreateDataDependenceEdge(Node fromStatement, Node toStatement) {
-		Q dataDependenceEdges = Query.universe().edges(DATA_DEPENDENCE_EDGE);
-		Edge dataDependenceEdge = dataDependenceEdges.betweenStep(Common.toQ(fromStatement), Common.toQ(toStatement)).eval().edges().one();
-		if(dataDependenceEdge == null){
-			dataDependenceEdge = Graph.U.createEdge(fromStatement, toStatement);
-			dataDependenceEdge.tag(DATA_DEPENDENCE_EDGE);
-			dataDependenceEdge.putAttr(XCSG.name, DATA_DEPENDENCE_EDGE);
+		private Node getToStatement(Node to, StatementIndex statements){
+			if(field && to.taggedWith(XCSG.ReturnValue)){
+				return to;
+			}
+			return statements.getStatement(to);
 		}
-		return dataDependenceEdge;
 	}
 
 	@Override
@@ -0,0 +1,204 @@
+package com.se421.slice.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Graph;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+
+/**
+ * Finds or creates the dependence edges with one tag (such as
+ * {@link DataDependenceGraph#DATA_DEPENDENCE_EDGE}) between the statements of
+ * a function being built into a dependence graph.
+ *
+ * Statements are given dense ids as they are seen, and the edges with the tag
+ * that already enter a statement are loaded once, the first time an edge into
+ * it is requested, into a hash index keyed by (from id, to id) packed into a
+ * long. Requested edges are deduplicated against the index in memory and only
+ * the missing ones are created, in a single pass by {@link #commit()}. This
+ * replaces a universe wide betweenStep query per requested edge, see also
+ * {@link com.se421.slice.codemap.DerivedEdgeWriter}.
+ *
+ * Instances are not thread safe, commits of different instances are
+ * serialized so that concurrent builders do not create duplicate edges.
+ */
+public class DependenceEdgeIndex {
+
+	private static final long EMPTY = -1L;
+
+	/**
+	 * The tag of the dependence edges
+	 */
+	private final String tag;
+
+	/**
+	 * Statement ids by statement and statements by id
+	 */
+	private final Map<Node, Integer> ids = new HashMap<Node, Integer>();
+	private final List<Node> statements = new ArrayList<Node>();
+
+	/**
+	 * Ids of the statements whose existing incoming edges have been loaded
+	 */
+	private final BitSet seeded = new BitSet();
+
+	/**
+	 * Open addressing hash index from packed keys to edges. A slot holding a
+	 * key with a null edge is an edge requested but not committed yet.
+	 */
+	private long[] keys = new long[64];
+	private Edge[] edges = new Edge[64];
+	private int entries = 0;
+
+	/**
+	 * Requested edges that do not exist yet, as packed keys in request order
+	 */
+	private long[] pending = new long[16];
+	private int pendingCount = 0;
+
+	/**
+	 * The existing and created edges that were requested
+	 */
+	private final AtlasSet<Edge> requested = new AtlasHashSet<Edge>();
+
+	/**
+	 * Creates an empty index of the dependence edges with the given tag
+	 *
+	 * @param tag
+	 */
+	public DependenceEdgeIndex(String tag) {
+		this.tag = tag;
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Requests a dependence edge from the given statement to the given
+	 * statement
+	 *
+	 * @param fromStatement
+	 * @param toStatement
+	 */
+	public void add(Node fromStatement, Node toStatement) {
+		int to = getId(toStatement);
+		if(!seeded.get(to)){
+			seeded.set(to);
+			for(Edge edge : toStatement.in(tag)){
+				put(key(getId(edge.from()), to), edge);
+			}
+		}
+		long key = key(getId(fromStatement), to);
+		int slot = find(key);
+		if(keys[slot] == key){
+			if(edges[slot] != null){
+				requested.add(edges[slot]);
+			}
+			return;
+		}
+		put(key, null);
+		if(pendingCount == pending.length){
+			pending = Arrays.copyOf(pending, pendingCount * 2);
+		}
+		pending[pendingCount++] = key;
+	}
+
+	/**
+	 * Creates the requested edges that do not exist yet
+	 *
+	 * @return every requested edge, existing or created
+	 */
+	public AtlasSet<Edge> commit() {
+		synchronized(DependenceEdgeIndex.class){
+			for(int i=0; i<pendingCount; i++){
+				long key = pending[i];
+				Node from = statements.get((int) (key >>> 32));
+				Node to = statements.get((int) key);
+				// another builder may have created the edge since it was seeded
+				Edge edge = null;
+				for(Edge existing : to.in(tag)){
+					if(existing.from().equals(from)){
+						edge = existing;
+						break;
+					}
+				}
+				if(edge == null){
+					edge = Graph.U.createEdge(from, to);
+					edge.tag(tag);
+					edge.putAttr(XCSG.name, tag);
+				}
+				edges[find(key)] = edge;
+				requested.add(edge);
+			}
+		}
+		pendingCount = 0;
+		return requested;
+	}
+
+	private int getId(Node statement) {
+		Integer id = ids.get(statement);
+		if(id == null){
+			id = statements.size();
+			ids.put(statement, id);
+			statements.add(statement);
+		}
+		return id;
+	}
+
+	private static long key(int from, int to) {
+		return (((long) from) << 32) | to;
+	}
+
+	/**
+	 * Returns the slot holding the given key or the empty slot where it
+	 * belongs
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) (mix(key) & mask);
+		while(keys[slot] != EMPTY && keys[slot] != key){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void put(long key, Edge edge) {
+		int slot = find(key);
+		if(keys[slot] == EMPTY){
+			keys[slot] = key;
+			entries++;
+			if(entries * 2 > keys.length){
+				grow();
+			}
+			slot = find(key);
+		}
+		edges[slot] = edge;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Edge[] oldEdges = edges;
+		keys = new long[oldKeys.length * 2];
+		edges = new Edge[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for(int i=0; i<oldKeys.length; i++){
+			if(oldKeys[i] != EMPTY){
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				edges[slot] = oldEdges[i];
+			}
+		}
+	}
+
+	private static long mix(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return key ^ (key >>> 32);
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.se421.slice.analysis;
 
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Graph;
 import com.ensoftcorp.atlas.core.db.graph.Node;
 import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
 import com.ensoftcorp.atlas.core.db.set.AtlasSet;
@@ -57,13 +59,48 @@ public abstract class DependenceGraph {
 	}
 	
 	/**
-	 * Returns the control flow node for the corresponding data flow node
+	 * Returns the control flow node for the corresponding data flow node.
+	 * Reads the containing edge directly, use a {@link StatementIndex} to
+	 * resolve the statements of many data flow nodes of a function.
 	 */
 	public static Node getStatement(Node dataFlowNode){
-		return Common.toQ(dataFlowNode).parent().eval().nodes().one();
+		for(Edge containsEdge : dataFlowNode.in(XCSG.Contains)){
+			return containsEdge.from();
+		}
+		return null;
 	}
 	
 	public static class Factory {
+		/**
+		 * Returns the (cached) intra-procedural Control Dependence Graph (CDG)
+		 * for the given function, see {@link DependenceGraphCache}
+		 * @param function
+		 * @return
+		 */
+		public static ControlDependenceGraph getCDG(Node function){
+			return (ControlDependenceGraph) DependenceGraphCache.get(DependenceGraphCache.Kind.CDG, function);
+		}
+		
+		/**
+		 * Returns the (cached) intra-procedural Data Dependence Graph (DDG)
+		 * for the given function, see {@link DependenceGraphCache}
+		 * @param function
+		 * @return
+		 */
+		public static DataDependenceGraph getDDG(Node function){
+			return (DataDependenceGraph) DependenceGraphCache.get(DependenceGraphCache.Kind.DDG, function);
+		}
+		
+		/**
+		 * Returns the (cached) intra-procedural Program Dependence Graph (PDG)
+		 * for the given function, see {@link DependenceGraphCache}
+		 * @param function
+		 * @return
+		 */
+		public static ProgramDependenceGraph getPDG(Node function){
+			return (ProgramDependenceGraph) DependenceGraphCache.get(DependenceGraphCache.Kind.PDG, function);
+		}
+		
 		/**
 		 * Returns an intra-procedural Control Dependence Graph (CDG) for the given function
 		 * @param function
@@ -97,17 +134,35 @@ public abstract class DependenceGraph {
 		 * @return
 		 */
 		public static ProgramDependenceGraph buildPDG(Node function){
+			ProgramDependenceGraph pdg = new ProgramDependenceGraph(getPDGControlFlowGraph(function), getPDGDataFlowGraph(function));
+			return pdg;
+		}
+		
+		/**
+		 * Returns the control flow graph the Program Dependence Graph (PDG) of
+		 * the given function is built from. Only reads the graph database.
+		 * @param function
+		 * @return
+		 */
+		public static Graph getPDGControlFlowGraph(Node function){
 			Q controlFlowEdges = Query.universe().edges(XCSG.ControlFlow_Edge);
 			Q cfg = controlFlowEdges.forward(Common.toQ(function).contained().nodes(XCSG.controlFlowRoot));
-			
+			return cfg.eval();
+		}
+		
+		/**
+		 * Returns the data flow graph the Program Dependence Graph (PDG) of
+		 * the given function is built from. Only reads the graph database.
+		 * @param function
+		 * @return
+		 */
+		public static Graph getPDGDataFlowGraph(Node function){
 			Q dataFlowEdges = Query.universe().edges(XCSG.DataFlow_Edge);
 			Q localDataFlowEdges = Query.universe().edges(XCSG.LocalDataFlow);
 			Q dfg = Common.toQ(function).contained().nodes(XCSG.DataFlow_Node).induce(dataFlowEdges);
 			dfg = localDataFlowEdges.reverseStep(dfg); // get parameters
 			dfg = localDataFlowEdges.forwardStep(dfg); // get return values
-			
-			ProgramDependenceGraph pdg = new ProgramDependenceGraph(cfg.eval(), dfg.eval());
-			return pdg;
+			return dfg.eval();
 		}
 	}
 	
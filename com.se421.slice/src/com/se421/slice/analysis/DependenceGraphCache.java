@@ -0,0 +1,198 @@
+package com.se421.slice.analysis;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.se421.slice.log.Log;
+import com.se421.slice.preferences.SlicePreferences;
+
+/**
+ * A size-bounded cache of the dependence graphs built by
+ * {@link DependenceGraph.Factory}, keyed by kind and function.
+ *
+ * The least recently used graphs are evicted once the cache holds more than
+ * {@link SlicePreferences#getDependenceGraphCacheSize()} graphs. Each graph is
+ * built at most once while it is cached, threads asking for a graph that is
+ * being built wait for it instead of building it again. The cache is cleared
+ * when the codemap is refreshed since the graphs refer to the previous index.
+ */
+public class DependenceGraphCache {
+
+	/**
+	 * The kinds of cached dependence graphs
+	 */
+	public static enum Kind {
+		CDG, DDG, PDG;
+
+		@Override
+		public String toString(){
+			return this.name();
+		}
+	}
+
+	/**
+	 * Cache entries by kind and function in least recently used order
+	 */
+	private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong evictions = new AtomicLong();
+
+	private DependenceGraphCache() {}
+
+	/**
+	 * Returns the (cached) dependence graph of the given kind for the given
+	 * function
+	 *
+	 * @param kind
+	 * @param function
+	 * @return
+	 */
+	static DependenceGraph get(Kind kind, Node function) {
+		Key key = new Key(kind, function);
+		Entry entry;
+		synchronized(entries){
+			entry = entries.get(key);
+			if(entry == null){
+				entry = new Entry();
+				entries.put(key, entry);
+				evict(SlicePreferences.getDependenceGraphCacheSize());
+			}
+		}
+		return entry.get(kind, function);
+	}
+
+	/**
+	 * Evicts the least recently used entries until at most the given number
+	 * of entries remain
+	 */
+	private static void evict(int size) {
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while(entries.size() > size && iterator.hasNext()){
+			iterator.next();
+			iterator.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Discards the cached dependence graphs of the given function
+	 *
+	 * @param function
+	 */
+	public static void invalidate(Node function) {
+		synchronized(entries){
+			for(Kind kind : Kind.values()){
+				entries.remove(new Key(kind, function));
+			}
+		}
+	}
+
+	/**
+	 * Discards every cached dependence graph and resets the statistics
+	 */
+	public static void clear() {
+		synchronized(entries){
+			if(hits.get() > 0 || misses.get() > 0){
+				Log.info("Dependence graph cache: " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions");
+			}
+			entries.clear();
+			hits.set(0);
+			misses.set(0);
+			evictions.set(0);
+		}
+	}
+
+	/**
+	 * Returns the number of cached dependence graphs
+	 * @return
+	 */
+	public static int size() {
+		synchronized(entries){
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that found a built graph
+	 * @return
+	 */
+	public static long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that had to build a graph
+	 * @return
+	 */
+	public static long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of graphs evicted to respect the cache size
+	 * @return
+	 */
+	public static long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * A cached graph, built by the first lookup
+	 */
+	private static class Entry {
+		private DependenceGraph graph = null;
+
+		private synchronized DependenceGraph get(Kind kind, Node function) {
+			if(graph != null){
+				hits.incrementAndGet();
+				return graph;
+			}
+			misses.incrementAndGet();
+			switch(kind){
+				case CDG:
+					graph = DependenceGraph.Factory.buildCDG(function);
+					break;
+				case DDG:
+					graph = DependenceGraph.Factory.buildDDG(function);
+					break;
+				default:
+					graph = DependenceGraph.Factory.buildPDG(function);
+					break;
+			}
+			return graph;
+		}
+	}
+
+	private static final class Key {
+		private final Kind kind;
+		private final Node function;
+
+		private Key(Kind kind, Node function) {
+			this.kind = kind;
+			this.function = function;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * kind.hashCode() + function.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj){
+				return true;
+			}
+			if(!(obj instanceof Key)){
+				return false;
+			}
+			Key other = (Key) obj;
+			return kind == other.kind && function.equals(other.function);
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.se421.slice.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Graph;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.utilities.CommonQueries;
+
+/**
+ * Maps the data flow nodes of one or more functions to the statements (the
+ * control flow nodes, or the function itself for parameters and identities)
+ * that contain them.
+ *
+ * The index is built by a single walk of the {@link XCSG#Contains} tree of
+ * each function and stored in open addressed key and value arrays, so
+ * resolving a statement is an array probe instead of a graph query. The index
+ * of each function is computed on first use and cached until the next
+ * indexing.
+ */
+public class StatementIndex {
+
+	/**
+	 * Statement indexes by function
+	 */
+	private static final ConcurrentHashMap<Node, StatementIndex> indexes = new ConcurrentHashMap<Node, StatementIndex>();
+
+	private static final StatementIndex EMPTY = new StatementIndex(new ArrayList<Node>(), new ArrayList<Node>());
+
+	/**
+	 * Data flow nodes and their statements by slot, the table length is a
+	 * power of two
+	 */
+	private final Node[] dataFlowNodes;
+	private final Node[] statements;
+	private final int mask;
+	private final int size;
+
+	private StatementIndex(List<Node> dataFlowNodes, List<Node> statements) {
+		int capacity = 2;
+		while(capacity < dataFlowNodes.size() * 2){
+			capacity <<= 1;
+		}
+		this.dataFlowNodes = new Node[capacity];
+		this.statements = new Node[capacity];
+		this.mask = capacity - 1;
+		int size = 0;
+		for(int i=0; i<dataFlowNodes.size(); i++){
+			int slot = slot(dataFlowNodes.get(i));
+			if(this.dataFlowNodes[slot] == null){
+				this.dataFlowNodes[slot] = dataFlowNodes.get(i);
+				this.statements[slot] = statements.get(i);
+				size++;
+			}
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Returns the (cached) statement index of the given function
+	 *
+	 * @param function
+	 * @return
+	 */
+	public static StatementIndex getStatementIndex(Node function) {
+		StatementIndex index = indexes.get(function);
+		if(index == null){
+			index = computeStatementIndex(function);
+			StatementIndex previous = indexes.putIfAbsent(function, index);
+			if(previous != null){
+				index = previous;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns a statement index covering the functions containing the data
+	 * flow nodes of the given graph, the cached index if there is only one.
+	 * The containing function is only queried for nodes the index does not
+	 * cover yet, typically once.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static StatementIndex getStatementIndex(Graph graph) {
+		List<Node> functions = new ArrayList<Node>();
+		StatementIndex index = EMPTY;
+		for(Node node : graph.nodes()){
+			if(node.taggedWith(XCSG.DataFlow_Node) && !index.contains(node)){
+				Node function = CommonQueries.getContainingFunction(node);
+				if(function != null && !functions.contains(function)){
+					functions.add(function);
+					index = functions.size() == 1 ? getStatementIndex(function) : computeStatementIndex(functions);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Computes the statement index of the given functions without caching it
+	 *
+	 * @param functions
+	 * @return
+	 */
+	public static StatementIndex computeStatementIndex(Iterable<Node> functions) {
+		List<Node> dataFlowNodes = new ArrayList<Node>();
+		List<Node> statements = new ArrayList<Node>();
+		Deque<Node> stack = new ArrayDeque<Node>();
+		for(Node function : functions){
+			stack.push(function);
+			while(!stack.isEmpty()){
+				Node parent = stack.pop();
+				for(Edge containsEdge : parent.out(XCSG.Contains)){
+					Node child = containsEdge.to();
+					if(child.taggedWith(XCSG.DataFlow_Node)){
+						dataFlowNodes.add(child);
+						statements.add(parent);
+					}
+					// nested functions and types have their own statements
+					if(!child.taggedWith(XCSG.Function) && !child.taggedWith(XCSG.Type)){
+						stack.push(child);
+					}
+				}
+			}
+		}
+		return new StatementIndex(dataFlowNodes, statements);
+	}
+
+	/**
+	 * Computes the statement index of the given function without caching it
+	 *
+	 * @param function
+	 * @return
+	 */
+	public static StatementIndex computeStatementIndex(Node function) {
+		List<Node> functions = new ArrayList<Node>(1);
+		functions.add(function);
+		return computeStatementIndex(functions);
+	}
+
+	/**
+	 * Returns the statement containing the given data flow node. Nodes outside
+	 * the indexed functions are resolved with
+	 * {@link DependenceGraph#getStatement(Node)}.
+	 *
+	 * @param dataFlowNode
+	 * @return
+	 */
+	public Node getStatement(Node dataFlowNode) {
+		int slot = slot(dataFlowNode);
+		if(dataFlowNodes[slot] != null){
+			return statements[slot];
+		}
+		return DependenceGraph.getStatement(dataFlowNode);
+	}
+
+	/**
+	 * Returns true if the given data flow node is indexed
+	 *
+	 * @param dataFlowNode
+	 * @return
+	 */
+	public boolean contains(Node dataFlowNode) {
+		return dataFlowNodes[slot(dataFlowNode)] != null;
+	}
+
+	/**
+	 * Returns the number of indexed data flow nodes
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the free or matching slot of the given data flow node
+	 */
+	private int slot(Node dataFlowNode) {
+		int slot = hash(dataFlowNode) & mask;
+		while(dataFlowNodes[slot] != null && !dataFlowNodes[slot].equals(dataFlowNode)){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(Node node) {
+		int hash = node.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Discards all cached statement indexes
+	 */
+	public static void clearCache() {
+		indexes.clear();
+	}
+
+}
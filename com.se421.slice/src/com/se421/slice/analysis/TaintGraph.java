@@ -35,7 +35,7 @@ public class TaintGraph {
 			Node function = sourceFunction;
 			
 			// build program dependence graph
-			ProgramDependenceGraph pdg = DependenceGraph.Factory.buildPDG(function);
+			ProgramDependenceGraph pdg = DependenceGraph.Factory.getPDG(function);
 			
 			// taint graph is the forward taint of the source intersected with the reverse taint of the sink
 //			AtlasSet<Node> sources = new AtlasHashSet<Node>();
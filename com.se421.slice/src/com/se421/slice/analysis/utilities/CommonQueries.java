@@ -3,6 +3,7 @@ package com.se421.slice.analysis.utilities;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import com.ensoftcorp.atlas.core.db.graph.Edge;
@@ -21,6 +22,9 @@ import com.ensoftcorp.atlas.core.query.Q;
 import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.script.Common;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.utilities.dominance.DominatorTree;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.analysis.utilities.dominance.PostDominatorTree;
 
 /**
  * Common queries which are useful for writing larger language agnostic analysis
@@ -31,6 +35,14 @@ import com.ensoftcorp.atlas.core.xcsg.XCSG;
  */
 public final class CommonQueries {	
 	
+	/**
+	 * Dominator trees of function control flow graphs used by
+	 * {@link #isGoverningBranch(Node, Node, boolean)}, by function, without
+	 * and with exceptional control flow paths
+	 */
+	private static final ConcurrentHashMap<Node, GoverningTrees> governingTrees = new ConcurrentHashMap<Node, GoverningTrees>();
+	private static final ConcurrentHashMap<Node, GoverningTrees> exceptionalGoverningTrees = new ConcurrentHashMap<Node, GoverningTrees>();
+	
 	// hide constructor
 	private CommonQueries() {}
 	
@@ -1169,12 +1181,52 @@ public final class CommonQueries {
 		if(!event.taggedWith(XCSG.ControlFlow_Node)){
 			throw new IllegalArgumentException("event parameter is not a control flow node!");
 		}
+		GoverningTrees trees = getGoverningTrees(function, includeExceptionalPaths);
+		// is there a path from the root to the event that does not go through the branch?
+		// if not then all paths must be going through the branch to reach the event and so the branch dominates the event
+		// (an event that is not reachable from the root has no such path)
+		DominatorTree dominatorTree = trees.getDominatorTree();
+		boolean branchDominatesEvent = dominatorTree.depth(event) == -1 || dominatorTree.dominates(branch, event);
+		if(branchDominatesEvent){
+			// is there a path that could be taken through at this branch where the event cannot occur?
+			// i.e. this branch could potentially block the event from occurring
+			// (such a path exists exactly when the branch reaches an exit and the
+			// event does not post-dominate the branch)
+			PostDominatorTree postDominatorTree = trees.getPostDominatorTree();
+			boolean branchCanBlockEvent = postDominatorTree.depth(branch) != -1 && !postDominatorTree.postDominates(event, branch);
+			// returns branchDominatesEvent && branchCanBlockEvent
+			return branchCanBlockEvent;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the (cached) dominator trees used to answer
+	 * {@link #isGoverningBranch(Node, Node, boolean)} for the given function
+	 */
+	private static GoverningTrees getGoverningTrees(Node function, boolean includeExceptionalPaths){
+		ConcurrentHashMap<Node, GoverningTrees> cache = includeExceptionalPaths ? exceptionalGoverningTrees : governingTrees;
+		GoverningTrees trees = cache.get(function);
+		if(trees == null){
+			trees = new GoverningTrees(indexGoverningGraph(function, includeExceptionalPaths));
+			GoverningTrees previous = cache.putIfAbsent(function, trees);
+			if(previous != null){
+				trees = previous;
+			}
+		}
+		return trees;
+	}
+	
+	/**
+	 * Indexes the control flow graph of the given function with virtual master
+	 * entry and exit nodes
+	 */
+	private static IndexedGraph indexGoverningGraph(Node function, boolean includeExceptionalPaths){
 		Q cfg = includeExceptionalPaths ? excfg(function) : cfg(function);
 		AtlasSet<Node> roots = cfg.roots().eval().nodes();
 		if(roots.size() != 1){
 			throw new RuntimeException("Function " + function.getAttr(XCSG.name) + " must only have one control flow root.");
 		}
-		Node root = roots.one();
 		// a lovely rare corner case here, a void method can have a loop
 		// with no termination conditions that forms a strongly connected
 		// component, so root -> ... SCC, since the SCC will not have any
@@ -1184,17 +1236,45 @@ public final class CommonQueries {
 		if(exits.isEmpty()){
 			throw new RuntimeException("Control flow graph does not have any exits.");
 		}
-		// is there a path from the root to the event that does not go through the branch?
-		// if not then all paths must be going through the branch to reach the event and so the branch dominates the event
-		boolean branchDominatesEvent = CommonQueries.isEmpty(cfg.between(Common.toQ(root), Common.toQ(event), Common.toQ(branch)));
-		if(branchDominatesEvent){
-			// is there a path that could be taken through at this branch where the event cannot occur?
-			// i.e. this branch could potentially block the event from occurring
-			boolean branchCanBlockEvent = !CommonQueries.isEmpty(cfg.between(Common.toQ(branch), Common.toQ(exits), Common.toQ(event)));
-			// returns branchDominatesEvent && branchCanBlockEvent
-			return branchCanBlockEvent;
+		// index the cfg once so that governing branch questions are answered
+		// from the dominator trees instead of path queries against the graph
+		// database
+		Graph cfgGraph = cfg.eval();
+		return IndexedGraph.build(cfgGraph.nodes(), cfgGraph.edges(), roots, exits);
+	}
+	
+	/**
+	 * Discards the cached dominator trees of {@link #isGoverningBranch(Node, Node, boolean)}
+	 */
+	public static void clearCache(){
+		governingTrees.clear();
+		exceptionalGoverningTrees.clear();
+	}
+	
+	/**
+	 * The dominator tree and, once needed, the post-dominator tree of an
+	 * indexed function control flow graph
+	 */
+	private static class GoverningTrees {
+		private final IndexedGraph index;
+		private final DominatorTree dominatorTree;
+		private PostDominatorTree postDominatorTree = null;
+		
+		private GoverningTrees(IndexedGraph index){
+			this.index = index;
+			this.dominatorTree = new DominatorTree(index);
+		}
+		
+		private DominatorTree getDominatorTree(){
+			return dominatorTree;
+		}
+		
+		private synchronized PostDominatorTree getPostDominatorTree(){
+			if(postDominatorTree == null){
+				postDominatorTree = new PostDominatorTree(index);
+			}
+			return postDominatorTree;
 		}
-		return false;
 	}
 
 	/**
@@ -1,16 +1,14 @@
 package com.se421.slice.analysis.utilities.dominance;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.Stack;
 
 import com.ensoftcorp.atlas.core.db.graph.Node;
 import com.ensoftcorp.atlas.core.db.set.AtlasSet;
 
 /**
  * DepthFirstPreorderIterator yields a depth-first pre-order traversal of a graph.
+ * Each node reachable from the roots is returned exactly once.
  */
 public class DepthFirstPreorderIterator implements Iterator<Node> {
 
@@ -19,6 +17,28 @@ public class DepthFirstPreorderIterator implements Iterator<Node> {
 	 */
 	protected UniqueEntryExitGraph graph;
 
+	/**
+	 * Adjacency snapshot of the graph
+	 */
+	protected IndexedGraph index;
+
+	/**
+	 * The search producing the traversal, following the successor lists
+	 * unless replaced by a subclass before the first call to next
+	 */
+	protected DepthFirstSearch search;
+
+	/**
+	 * The ids of the roots, in the order they are searched from
+	 */
+	private int[] roots;
+	private int nextRoot = 0;
+
+	/**
+	 * The id of the node to return next, -1 if not searched for yet
+	 */
+	private int nextId = -1;
+
 	/**
 	 * @param roots
 	 *            the caller's root(s) of the flowgraph. There should be only one
@@ -27,29 +47,34 @@ public class DepthFirstPreorderIterator implements Iterator<Node> {
 	 */
 	public DepthFirstPreorderIterator(UniqueEntryExitGraph graph, AtlasSet<Node> roots) {
 		this.graph = graph;
+		this.index = graph.getIndexedGraph();
+		this.search = new DepthFirstSearch(index);
+		this.roots = new int[(int) roots.size()];
+		int i = 0;
 		for (Node root : roots) {
-			this.stack.add(root);
+			this.roots[i++] = index.getId(root);
 		}
 	}
 
 	public DepthFirstPreorderIterator(UniqueEntryExitGraph graph, Node root) {
 		this.graph = graph;
-		this.stack.add(root);
+		this.index = graph.getIndexedGraph();
+		this.search = new DepthFirstSearch(index);
+		this.roots = new int[]{ index.getId(root) };
 	}
 
-	/**
-	 * The to-be-visited stack of blocks.
-	 */
-	private Stack<Node> stack = new Stack<Node>();
-
-	/**
-	 * The set of edges already traversed.
-	 */
-	private Set<Edge> visitedEdges = new HashSet<Edge>();
-
 	@Override
 	public boolean hasNext() {
-		return !stack.isEmpty();
+		while (nextId == -1) {
+			nextId = search.next();
+			if (nextId == -1) {
+				if (nextRoot == roots.length) {
+					return false;
+				}
+				search.start(roots[nextRoot++]);
+			}
+		}
+		return true;
 	}
 
 	@Override
@@ -57,78 +82,14 @@ public class DepthFirstPreorderIterator implements Iterator<Node> {
 		if (!hasNext()) {
 			throw new NoSuchElementException();
 		}
-		Node next = stack.pop();
-		pushSuccessors(next);
+		Node next = index.getNode(nextId);
+		nextId = -1;
 		return next;
 	}
 
-	/**
-	 * Traverse any previously-untraversed edges by adding the destination block to
-	 * the to-do stack.
-	 * 
-	 * @param b
-	 *            the current block.
-	 */
-	private void pushSuccessors(Node b) {
-		for (Node successor : getSuccessors(b)) {
-			if (visitedEdges.add(new Edge(b, successor))) {
-				stack.push(successor);
-			}
-		}
-	}
-
 	@Override
 	public void remove() {
 		throw new UnsupportedOperationException();
 	}
 
-	/**
-	 * Edge is used to detect edges previously traversed. It implements composite
-	 * hash and equality operations so it can be used as a key in a hashed
-	 * collection.
-	 */
-	private static class Edge {
-		private String fromAddress;
-		private String toAddress;
-
-		public Edge(Node from, Node to) {
-			this.fromAddress = from.address().toAddressString();
-			this.toAddress = to.address().toAddressString();
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((fromAddress == null) ? 0 : fromAddress.hashCode());
-			result = prime * result + ((toAddress == null) ? 0 : toAddress.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Edge other = (Edge) obj;
-			if (fromAddress == null) {
-				if (other.fromAddress != null)
-					return false;
-			} else if (!fromAddress.equals(other.fromAddress))
-				return false;
-			if (toAddress == null) {
-				if (other.toAddress != null)
-					return false;
-			} else if (!toAddress.equals(other.toAddress))
-				return false;
-			return true;
-		}
-	}
-	
-	protected AtlasSet<Node> getSuccessors(Node node) {
-		return this.graph.getSuccessors(node);
-	}
-}
\ No newline at end of file
+}
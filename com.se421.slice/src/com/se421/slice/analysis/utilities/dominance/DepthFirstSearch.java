@@ -0,0 +1,246 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+import java.util.Arrays;
+
+/**
+ * Depth-first search over the dense node ids of an {@link IndexedGraph}.
+ *
+ * The search keeps an int stack, a visited bitset and a next-edge cursor per
+ * node, all allocated once per instance, so traversing the graph does not
+ * allocate per node or per edge. An instance can be reused after
+ * {@link #reset()}. The inverted search follows predecessor edges through the
+ * zero-copy {@link IndexedGraph#reverse()} view.
+ *
+ * Instances are not thread safe.
+ */
+public class DepthFirstSearch {
+
+	/**
+	 * The graph to search, in the direction of the search
+	 */
+	private final IndexedGraph graph;
+
+	/**
+	 * Adjacency of the graph in the direction of the search
+	 */
+	private final int[] offsets;
+	private final int[] targets;
+
+	/**
+	 * The nodes on the current search path
+	 */
+	private final int[] stack;
+	private int top = 0;
+
+	/**
+	 * The next edge to follow out of each node on the stack
+	 */
+	private final int[] cursor;
+
+	/**
+	 * One bit per node id
+	 */
+	private final long[] visited;
+
+	/**
+	 * A node discovered by {@link #start(int)} that {@link #next()} has not
+	 * returned yet
+	 */
+	private int pending = -1;
+
+	/**
+	 * Creates a search following the successor edges of the given graph
+	 *
+	 * @param graph
+	 */
+	public DepthFirstSearch(IndexedGraph graph) {
+		this.graph = graph;
+		this.offsets = graph.successorOffsets;
+		this.targets = graph.successorTargets;
+		this.stack = new int[graph.size()];
+		this.cursor = new int[graph.size()];
+		this.visited = new long[(graph.size() + 63) >>> 6];
+	}
+
+	/**
+	 * Creates a search following the predecessor edges of the given graph
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static DepthFirstSearch inverted(IndexedGraph graph) {
+		return new DepthFirstSearch(graph.reverse());
+	}
+
+	/**
+	 * Returns the graph searched, in the direction of the search
+	 *
+	 * @return
+	 */
+	public IndexedGraph getIndexedGraph() {
+		return graph;
+	}
+
+	/**
+	 * Forgets all visited nodes
+	 */
+	public void reset() {
+		Arrays.fill(visited, 0L);
+		top = 0;
+		pending = -1;
+	}
+
+	/**
+	 * Returns true if the node with the given id has been visited since the
+	 * last reset
+	 *
+	 * @param id
+	 * @return
+	 */
+	public boolean isVisited(int id) {
+		return (visited[id >>> 6] & (1L << id)) != 0;
+	}
+
+	private void visit(int id) {
+		visited[id >>> 6] |= 1L << id;
+		cursor[id] = offsets[id];
+		stack[top++] = id;
+	}
+
+	/**
+	 * Searches from each of the given roots in turn, skipping roots and nodes
+	 * already visited. Each output array may be null, otherwise it must have
+	 * room for every node found.
+	 *
+	 * @param roots
+	 *            the ids of the roots, negative ids are ignored
+	 * @param preorder
+	 *            receives the ids found, in preorder
+	 * @param postorder
+	 *            receives the ids found, in postorder
+	 * @param parents
+	 *            receives the id of the depth-first tree parent of each node,
+	 *            by preorder index, -1 for the roots
+	 * @return the number of nodes found
+	 */
+	public int search(int[] roots, int[] preorder, int[] postorder, int[] parents) {
+		int pre = 0;
+		int post = 0;
+		for(int root : roots){
+			if(root < 0 || isVisited(root)){
+				continue;
+			}
+			visit(root);
+			if(preorder != null){
+				preorder[pre] = root;
+			}
+			if(parents != null){
+				parents[pre] = -1;
+			}
+			pre++;
+			while(top > 0){
+				int v = stack[top - 1];
+				if(cursor[v] < offsets[v + 1]){
+					int w = targets[cursor[v]++];
+					if(!isVisited(w)){
+						visit(w);
+						if(preorder != null){
+							preorder[pre] = w;
+						}
+						if(parents != null){
+							parents[pre] = v;
+						}
+						pre++;
+					}
+				} else {
+					top--;
+					if(postorder != null){
+						postorder[post] = v;
+					}
+					post++;
+				}
+			}
+		}
+		return pre;
+	}
+
+	/**
+	 * Returns the ids of the nodes reachable from the given root in preorder
+	 *
+	 * @param root
+	 * @return
+	 */
+	public int[] preorder(int root) {
+		int[] result = new int[graph.size()];
+		return Arrays.copyOf(result, search(new int[]{ root }, result, null, null));
+	}
+
+	/**
+	 * Returns the ids of the nodes reachable from the given root in postorder
+	 *
+	 * @param root
+	 * @return
+	 */
+	public int[] postorder(int root) {
+		int[] result = new int[graph.size()];
+		return Arrays.copyOf(result, search(new int[]{ root }, null, result, null));
+	}
+
+	/**
+	 * Returns the ids of the nodes reachable from the given root in reverse
+	 * postorder, a topological order if back edges are ignored
+	 *
+	 * @param root
+	 * @return
+	 */
+	public int[] reversePostorder(int root) {
+		int[] result = postorder(root);
+		for(int i=0, j=result.length-1; i<j; i++, j--){
+			int swap = result[i];
+			result[i] = result[j];
+			result[j] = swap;
+		}
+		return result;
+	}
+
+	/**
+	 * Begins an incremental preorder search from the given root, unless it has
+	 * already been visited. The nodes are returned by {@link #next()}.
+	 *
+	 * @param root
+	 */
+	public void start(int root) {
+		if(root >= 0 && !isVisited(root)){
+			visit(root);
+			pending = root;
+		}
+	}
+
+	/**
+	 * Returns the next node of the incremental search in preorder, or -1 when
+	 * everything reachable from the started roots has been returned
+	 *
+	 * @return
+	 */
+	public int next() {
+		if(pending != -1){
+			int v = pending;
+			pending = -1;
+			return v;
+		}
+		while(top > 0){
+			int v = stack[top - 1];
+			if(cursor[v] < offsets[v + 1]){
+				int w = targets[cursor[v]++];
+				if(!isVisited(w)){
+					visit(w);
+					return w;
+				}
+			} else {
+				top--;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+/**
+ * The algorithms available for computing immediate dominators.
+ */
+public enum DominatorAlgorithm {
+
+	/**
+	 * The O(m log n) Lengauer-Tarjan algorithm with simple path compression.
+	 * Its worst case is bounded, which makes it the safer choice for very
+	 * large graphs.
+	 */
+	LENGAUER_TARJAN,
+
+	/**
+	 * The Semi-NCA algorithm of Georgiadis et al. Computes semidominators as
+	 * in Lengauer-Tarjan and then derives each idom by walking up the partially
+	 * built dominator tree, which skips the bucket bookkeeping. It is O(n^2) in
+	 * the worst case but faster than Lengauer-Tarjan on typical control flow
+	 * graphs.
+	 */
+	SEMI_NCA,
+
+	/**
+	 * Selects Semi-NCA for graphs with at most AUTOMATIC_SIZE_THRESHOLD nodes
+	 * and Lengauer-Tarjan for larger graphs.
+	 */
+	AUTOMATIC;
+
+	/**
+	 * The largest graph (in nodes) for which the automatic mode selects
+	 * Semi-NCA
+	 */
+	public static final int AUTOMATIC_SIZE_THRESHOLD = 1000;
+
+	/**
+	 * Returns the concrete algorithm to run for a graph with the given number
+	 * of nodes
+	 *
+	 * @param size
+	 * @return
+	 */
+	public DominatorAlgorithm resolve(int size) {
+		if(this == AUTOMATIC){
+			return size <= AUTOMATIC_SIZE_THRESHOLD ? SEMI_NCA : LENGAUER_TARJAN;
+		}
+		return this;
+	}
+
+}
@@ -0,0 +1,348 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+import java.util.Arrays;
+
+/**
+ * Computes immediate dominators over the dense node ids of an
+ * {@link IndexedGraph}. All bookkeeping is kept in int arrays indexed by
+ * depth-first preorder number.
+ *
+ * The engine is direction agnostic: it follows the successor arrays of the
+ * graph it is given, so running it on {@link IndexedGraph#reverse()} from the
+ * exit computes post-dominators.
+ *
+ * Scratch arrays are borrowed from a per-thread {@link Workspace}, so the
+ * dominance and post-dominance passes of a function run back to back on one
+ * thread reuse the same buffers, while passes on different threads (for
+ * example both directions of the same function) never share state. Only the
+ * result arrays are allocated per computation.
+ */
+class DominatorEngine {
+
+	/**
+	 * Scratch buffers of the current thread
+	 */
+	private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	/**
+	 * The graph to operate on, in the direction of the computation
+	 */
+	private final IndexedGraph graph;
+
+	/**
+	 * Node ids in depth-first preorder
+	 */
+	private int[] preorder;
+
+	/**
+	 * Immediate dominator by node id, -1 for the root and unreachable nodes
+	 */
+	private int[] idom;
+
+	/**
+	 * Preorder number of the semidominator by node id, -1 for unreachable
+	 * nodes
+	 */
+	private int[] semi;
+
+	DominatorEngine(IndexedGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Computes the immediate dominators from the given root with the given
+	 * algorithm. Additional roots that are not reachable from the root are
+	 * searched afterwards and treated as children of the root.
+	 *
+	 * @param algorithm
+	 *            the algorithm to run, AUTOMATIC selects one by graph size
+	 * @param root
+	 *            the id of the root node
+	 * @param extraRoots
+	 *            the ids of additional roots, may be empty
+	 */
+	void compute(DominatorAlgorithm algorithm, int root, int[] extraRoots) {
+		Workspace workspace = WORKSPACE.get();
+		workspace.ensureCapacity(graph.size());
+
+		// step 1: depth-first search, numbering nodes in preorder
+		int count = dfs(root, extraRoots, workspace);
+
+		int[] semiNumber = workspace.semiNumber;
+		int[] label = workspace.label;
+		int[] ancestor = workspace.ancestor;
+		for(int i=0; i<count; i++){
+			semiNumber[i] = i;
+			label[i] = i;
+			ancestor[i] = -1;
+		}
+
+		if(algorithm.resolve(graph.size()) == DominatorAlgorithm.SEMI_NCA){
+			computeSemiNca(count, workspace);
+		} else {
+			computeLengauerTarjan(count, workspace);
+		}
+
+		// translate back from preorder numbers to node ids
+		int[] vertex = workspace.vertex;
+		int[] idomNumber = workspace.idomNumber;
+		preorder = Arrays.copyOf(vertex, count);
+		idom = new int[graph.size()];
+		semi = new int[graph.size()];
+		Arrays.fill(idom, -1);
+		Arrays.fill(semi, -1);
+		for(int w=0; w<count; w++){
+			semi[vertex[w]] = semiNumber[w];
+			if(w > 0){
+				idom[vertex[w]] = vertex[idomNumber[w]];
+			}
+		}
+	}
+
+	/**
+	 * Runs the Lengauer-Tarjan algorithm (with simple path compression).
+	 */
+	private void computeLengauerTarjan(int count, Workspace workspace) {
+		int[] parent = workspace.parent;
+		int[] semiNumber = workspace.semiNumber;
+		int[] ancestor = workspace.ancestor;
+		int[] idomNumber = workspace.idomNumber;
+		int[] bucketHead = workspace.bucketHead;
+		int[] bucketNext = workspace.bucketNext;
+		for(int i=0; i<count; i++){
+			idomNumber[i] = -1;
+			bucketHead[i] = -1;
+		}
+
+		for(int w=count-1; w>0; w--){
+			int p = parent[w];
+
+			// step 2: compute semidominators
+			int semidominator = semidominator(w, p, workspace);
+			semiNumber[w] = semidominator;
+			bucketNext[w] = bucketHead[semidominator];
+			bucketHead[semidominator] = w;
+
+			// link w into the forest via its parent, p
+			ancestor[w] = p;
+
+			// step 3: implicitly compute idominators
+			// for each v in bucket(parent(w)) ...
+			for(int v=bucketHead[p]; v!=-1; v=bucketNext[v]){
+				int u = eval(v, workspace);
+				idomNumber[v] = semiNumber[u] < semiNumber[v] ? u : p;
+			}
+			bucketHead[p] = -1;
+		}
+
+		// step 4: explicitly compute idominators
+		for(int w=1; w<count; w++){
+			if(idomNumber[w] != semiNumber[w]){
+				idomNumber[w] = idomNumber[idomNumber[w]];
+			}
+		}
+	}
+
+	/**
+	 * Runs the Semi-NCA algorithm. Semidominators are computed exactly as in
+	 * Lengauer-Tarjan, then the idom of each node is the nearest common
+	 * ancestor of its parent and its semidominator in the dominator tree built
+	 * so far, found by walking up from the parent in preorder.
+	 */
+	private void computeSemiNca(int count, Workspace workspace) {
+		int[] parent = workspace.parent;
+		int[] semiNumber = workspace.semiNumber;
+		int[] ancestor = workspace.ancestor;
+		int[] idomNumber = workspace.idomNumber;
+
+		for(int w=count-1; w>0; w--){
+			semiNumber[w] = semidominator(w, parent[w], workspace);
+			ancestor[w] = parent[w];
+		}
+
+		if(count > 0){
+			idomNumber[0] = -1;
+		}
+		for(int w=1; w<count; w++){
+			int x = parent[w];
+			while(x > semiNumber[w]){
+				x = idomNumber[x];
+			}
+			idomNumber[w] = x;
+		}
+	}
+
+	/**
+	 * Returns the semidominator of w, the least preorder number reachable
+	 * through a predecessor of w. The tree parent is always a candidate, which
+	 * also covers the extra roots whose edge from the root is only implied.
+	 */
+	private int semidominator(int w, int p, Workspace workspace) {
+		int[] number = workspace.number;
+		int[] semiNumber = workspace.semiNumber;
+		int semidominator = p;
+		int wid = workspace.vertex[w];
+		for(int i=graph.predecessorOffsets[wid]; i<graph.predecessorOffsets[wid + 1]; i++){
+			int v = number[graph.predecessorTargets[i]];
+			if(v != -1){
+				int u = eval(v, workspace);
+				semidominator = Math.min(semidominator, semiNumber[u]);
+			}
+		}
+		return semidominator;
+	}
+
+	/**
+	 * Iterative depth-first search that numbers the reachable nodes in
+	 * preorder and records the preorder number of each node's tree parent.
+	 *
+	 * @return the number of reachable nodes
+	 */
+	private int dfs(int root, int[] extraRoots, Workspace workspace) {
+		int[] vertex = workspace.vertex;
+		int[] number = workspace.number;
+		int[] parent = workspace.parent;
+		int[] stack = workspace.stack;
+		int[] cursor = workspace.cursor;
+		int[] successorOffsets = graph.successorOffsets;
+		int[] successorTargets = graph.successorTargets;
+		Arrays.fill(number, 0, graph.size(), -1);
+		int count = 0;
+
+		for(int i=-1; i<extraRoots.length; i++){
+			int r = i == -1 ? root : extraRoots[i];
+			if(r < 0 || number[r] != -1){
+				continue;
+			}
+			number[r] = count;
+			vertex[count] = r;
+			parent[count] = count == 0 ? -1 : 0;
+			count++;
+			int top = 0;
+			stack[top++] = r;
+			cursor[r] = successorOffsets[r];
+			while(top > 0){
+				int v = stack[top - 1];
+				if(cursor[v] < successorOffsets[v + 1]){
+					int w = successorTargets[cursor[v]++];
+					if(number[w] == -1){
+						number[w] = count;
+						vertex[count] = w;
+						parent[count] = number[v];
+						count++;
+						cursor[w] = successorOffsets[w];
+						stack[top++] = w;
+					}
+				} else {
+					top--;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the node with the least-numbered semidominator on the path from
+	 * v to the root of its tree in the forest (v itself if v is a root).
+	 */
+	private static int eval(int v, Workspace workspace) {
+		if(workspace.ancestor[v] == -1){
+			return v;
+		}
+		compress(v, workspace);
+		return workspace.label[v];
+	}
+
+	/**
+	 * Traverse ancestor pointers back to a subtree root, then propagate the
+	 * least semidominator seen along this path through the label array while
+	 * shortening the path.
+	 */
+	private static void compress(int v, Workspace workspace) {
+		int[] ancestor = workspace.ancestor;
+		int[] label = workspace.label;
+		int[] semiNumber = workspace.semiNumber;
+		int[] worklist = workspace.stack;
+		int top = 0;
+		int u = v;
+		while(ancestor[ancestor[u]] != -1){
+			worklist[top++] = u;
+			u = ancestor[u];
+		}
+		while(top > 0){
+			int x = worklist[--top];
+			int a = ancestor[x];
+			if(semiNumber[label[a]] < semiNumber[label[x]]){
+				label[x] = label[a];
+			}
+			ancestor[x] = ancestor[a];
+		}
+	}
+
+	/**
+	 * Returns the immediate dominator by node id, -1 for the root and
+	 * unreachable nodes
+	 */
+	int[] getIdoms() {
+		return idom;
+	}
+
+	/**
+	 * Returns the preorder number of each node's semidominator by node id, -1
+	 * for unreachable nodes
+	 */
+	int[] getSemidominators() {
+		return semi;
+	}
+
+	/**
+	 * Returns the reachable node ids in depth-first preorder
+	 */
+	int[] getPreorder() {
+		return preorder;
+	}
+
+	/**
+	 * Scratch arrays for one thread, grown to the largest graph seen. The
+	 * arrays indexed by node id are vertex-sized like the ones indexed by
+	 * preorder number, since every node may be reachable.
+	 */
+	static class Workspace {
+		private int capacity = -1;
+		int[] vertex;
+		int[] number;
+		int[] parent;
+		int[] stack;
+		int[] cursor;
+		int[] semiNumber;
+		int[] label;
+		int[] ancestor;
+		int[] idomNumber;
+		int[] bucketHead;
+		int[] bucketNext;
+
+		void ensureCapacity(int size) {
+			if(size <= capacity){
+				return;
+			}
+			capacity = Math.max(size, 16);
+			vertex = new int[capacity];
+			number = new int[capacity];
+			parent = new int[capacity];
+			stack = new int[capacity];
+			cursor = new int[capacity];
+			semiNumber = new int[capacity];
+			label = new int[capacity];
+			ancestor = new int[capacity];
+			idomNumber = new int[capacity];
+			bucketHead = new int[capacity];
+			bucketNext = new int[capacity];
+		}
+	}
+
+}
@@ -18,16 +18,14 @@ package com.se421.slice.analysis.utilities.dominance;
  *  
  *  This code is adapted from: https://svn.apache.org/repos/asf/flex/falcon/trunk/compiler/src/org/apache/flex/abc/graph/algorithms/DominatorTree.java (Revision 1840868)
  */
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.Stack;
 
 import com.ensoftcorp.atlas.core.db.graph.Node;
 import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
@@ -37,14 +35,21 @@ import com.ensoftcorp.atlas.core.db.set.AtlasSet;
  * An implementation of the O(n log n) Lengauer-Tarjan algorithm for building
  * the
  * <a href="http://en.wikipedia.org/wiki/Dominator_%28graph_theory%29">dominator
- * tree</a> of a graph.
+ * tree</a> of a graph. The Semi-NCA algorithm may be selected instead, see
+ * {@link DominatorAlgorithm}.
+ * 
+ * The algorithm itself runs on dense node ids in {@link DominatorEngine}, this
+ * class adapts the results to node keyed maps. Both the engine and this class
+ * only follow successor edges, so {@link PostDominatorTree} reuses them on a
+ * reversed view of the graph.
  */
 public class DominatorTree {
 	
 	/**
-	 * Unique Entry/Exit Graph to operate on
+	 * Adjacency snapshot of the graph to operate on, in the direction of the
+	 * computation
 	 */
-	private UniqueEntryExitGraph graph;
+	private IndexedGraph index;
 	
 	/**
 	 * Construct a DominatorTree from a root.
@@ -55,6 +60,16 @@ public class DominatorTree {
 	public DominatorTree(UniqueEntryExitGraph graph) {
 		this(graph, new AtlasHashSet<Node>());
 	}
+	
+	/**
+	 * Construct a DominatorTree from a root using the given algorithm.
+	 * 
+	 * @param algorithm
+	 *            the algorithm used to compute the immediate dominators
+	 */
+	public DominatorTree(UniqueEntryExitGraph graph, DominatorAlgorithm algorithm) {
+		this(graph, new AtlasHashSet<Node>(), algorithm);
+	}
 
 	/**
 	 * Construct a DominatorTree from a collection of "roots."
@@ -65,73 +80,132 @@ public class DominatorTree {
 	 *            be unreachable.
 	 */
 	public DominatorTree(UniqueEntryExitGraph graph, AtlasSet<Node> explicitRoots) {
-		this.graph = graph;
-		AtlasSet<Node> roots = new AtlasHashSet<Node>();
-		roots.add(graph.getEntryNode());
-		roots.addAll(explicitRoots);
-		this.dfs(roots);
-		this.computeDominators();
+		this(graph, explicitRoots, DominatorAlgorithm.AUTOMATIC);
 	}
-
+	
 	/**
-	 * Semidominator numbers by block.
+	 * Construct a DominatorTree from a collection of "roots" using the given
+	 * algorithm.
+	 * 
+	 * @param explicitRoots
+	 *            the collection of roots; one of these is the true root of the
+	 *            flowgraph, the others are exception handlers that would otherwise
+	 *            be unreachable.
+	 * @param algorithm
+	 *            the algorithm used to compute the immediate dominators
 	 */
-	private Map<Node, Integer> semi = new HashMap<Node, Integer>();
+	public DominatorTree(UniqueEntryExitGraph graph, AtlasSet<Node> explicitRoots, DominatorAlgorithm algorithm) {
+		this(graph.getIndexedGraph(), explicitRoots, algorithm);
+	}
 
 	/**
-	 * Parents by block.
+	 * Construct a DominatorTree of an indexed graph, rooted at the graph's
+	 * entry.
+	 * 
+	 * @param index
+	 *            the graph to operate on
 	 */
-	private Map<Node, Node> parent = new HashMap<Node, Node>();
+	public DominatorTree(IndexedGraph index) {
+		this(index, DominatorAlgorithm.AUTOMATIC);
+	}
 
 	/**
-	 * Predecessors by block.
+	 * Construct a DominatorTree of an indexed graph, rooted at the graph's
+	 * entry, using the given algorithm.
+	 * 
+	 * @param index
+	 *            the graph to operate on
+	 * @param algorithm
+	 *            the algorithm used to compute the immediate dominators
 	 */
-	private Multimap<Node> pred = new Multimap<Node>();
+	public DominatorTree(IndexedGraph index, DominatorAlgorithm algorithm) {
+		this(index, new AtlasHashSet<Node>(), algorithm);
+	}
 
 	/**
-	 * Blocks in DFS order; used to look up a block from its semidominator
-	 * numbering.
+	 * Construct a DominatorTree of an indexed graph, rooted at the graph's
+	 * entry. The tree follows the successor lists of the given graph, so
+	 * passing a reversed view ({@link IndexedGraph#reverse()}) rooted at the
+	 * exit yields the post-dominator tree.
+	 * 
+	 * @param index
+	 *            the graph in the direction of the computation
+	 * @param explicitRoots
+	 *            additional roots that would otherwise be unreachable
+	 * @param algorithm
+	 *            the algorithm used to compute the immediate dominators
 	 */
-	private ArrayList<Node> vertex = new ArrayList<Node>();
+	protected DominatorTree(IndexedGraph index, AtlasSet<Node> explicitRoots, DominatorAlgorithm algorithm) {
+		this.index = index;
+		int[] extraRoots = new int[(int) explicitRoots.size()];
+		int extraRootCount = 0;
+		for (Node root : explicitRoots) {
+			int id = index.getId(root);
+			if (id != -1) {
+				extraRoots[extraRootCount++] = id;
+			}
+		}
+		DominatorEngine engine = new DominatorEngine(index);
+		engine.compute(algorithm, index.getEntry(), Arrays.copyOf(extraRoots, extraRootCount));
+		this.adapt(engine);
+	}
 
 	/**
-	 * Blocks by semidominator block.
+	 * Semidominator numbers by block.
 	 */
-	private Multimap<Node> bucket = new Multimap<Node>();
+	private Map<Node, Integer> semi = new HashMap<Node, Integer>();
 
 	/**
-	 * idominator map, built iteratively.
+	 * idominator map, adapted from the dominator engine results.
 	 */
 	private Map<Node, Node> idom = new HashMap<Node, Node>();
 
 	/**
-	 * Dominance frontiers of this dominator tree, built on demand.
+	 * Immediate dominator by node id, -1 for the root and unreachable nodes.
 	 */
-	private Multimap<Node> dominanceFrontiers = null;
+	private int[] idomIds;
 
 	/**
-	 * Dominator tree, built on demand from the idominator map.
+	 * The children of node v in the dominator tree are
+	 * children[childOffsets[v]] to children[childOffsets[v+1]-1].
 	 */
-	private Multimap<Node> dominatorTree = null;
+	private int[] childOffsets;
+	private int[] children;
 
 	/**
-	 * Auxiliary data structure used by the O(m log n) eval/link implementation:
-	 * ancestor relationships in the forest (the processed tree as it's built back
-	 * up).
+	 * Node ids in preorder and postorder of the dominator tree.
 	 */
-	private Map<Node, Node> ancestor = new HashMap<Node, Node>();
+	private int[] treePreorder;
+	private int[] treePostorder;
 
 	/**
-	 * Auxiliary data structure used by the O(m log n) eval/link implementation:
-	 * node with least semidominator seen during traversal of a path from node to
-	 * subtree root in the forest.
+	 * Preorder and postorder numbers of each node in the dominator tree, -1
+	 * for unreachable nodes. a dominates b iff the interval of b is nested
+	 * in the interval of a.
 	 */
-	private Map<Node, Node> label = new HashMap<Node, Node>();
+	private int[] preNumber;
+	private int[] postNumber;
 
 	/**
-	 * A topological traversal of the dominator tree, built on demand.
+	 * Depth of each node in the dominator tree, 0 for the root and -1 for
+	 * unreachable nodes.
+	 */
+	private int[] depths;
+
+	/**
+	 * Dominance frontiers by node id, built on demand.
+	 */
+	private int[][] frontiers = null;
+
+	/**
+	 * Dominance frontiers of this dominator tree, built on demand.
+	 */
+	private Multimap<Node> dominanceFrontiers = null;
+
+	/**
+	 * Dominator tree, built on demand from the idominator map.
 	 */
-	private LinkedList<Node> topologicalTraversalImpl = null;
+	private Multimap<Node> dominatorTree = null;
 
 	/**
 	 * Returns the map of immediate dominators
@@ -149,6 +223,35 @@ public class DominatorTree {
 		return this.semi;
 	}
 
+	/**
+	 * Returns the adjacency snapshot the tree was computed on, in the
+	 * direction of the computation. Node ids used by the int array accessors
+	 * of this class are ids of this graph.
+	 */
+	public IndexedGraph getIndexedGraph() {
+		return this.index;
+	}
+
+	/**
+	 * Returns the id of the immediate dominator of the node with the given id
+	 * 
+	 * @return the id of the immediate dominator, -1 for the root and
+	 *         unreachable nodes
+	 */
+	public int getIdom(int id) {
+		return this.idomIds[id];
+	}
+
+	/**
+	 * Returns the ids of the nodes in the dominance frontier of the node with
+	 * the given id
+	 * 
+	 * @return the dominance frontier, empty for unreachable nodes
+	 */
+	public int[] getDominanceFrontier(int id) {
+		return getDominanceFrontierIds()[id].clone();
+	}
+
 	/**
 	 * Compute and/or fetch the dominator tree as a Multimap.
 	 * 
@@ -173,32 +276,198 @@ public class DominatorTree {
 	 */
 	public Multimap<Node> getDominanceFrontiers() {
 		if (this.dominanceFrontiers == null) {
-			this.dominanceFrontiers = new Multimap<Node>();
+			Multimap<Node> result = new Multimap<Node>();
+			int[][] df = getDominanceFrontierIds();
+			for (int x : treePreorder) {
+				Node node = index.getNode(x);
+				if (node == null) {
+					continue; // virtual entry or exit
+				}
+				Set<Node> dfx = result.get(node);
+				for (int y : df[x]) {
+					if (index.getNode(y) != null) {
+						dfx.add(index.getNode(y));
+					}
+				}
+			}
+			this.dominanceFrontiers = result;
+		}
+
+		return this.dominanceFrontiers;
+	}
 
-			getDominatorTree(); // touch the dominator tree
+	/**
+	 * Compute and/or fetch the dominance frontiers by node id. Nodes are
+	 * visited in dominator tree postorder so the frontiers of all children
+	 * are known before DF(up) is computed for their parent.
+	 * 
+	 * @return the ids of the nodes in each node's dominance frontier, empty for
+	 *         unreachable nodes
+	 */
+	int[][] getDominanceFrontierIds() {
+		if (this.frontiers == null) {
+			int size = index.size();
+			int[][] df = new int[size][];
+			int[] mark = new int[size];
+			Arrays.fill(mark, -1);
+			int[] buffer = new int[16];
 
-			for (Node x : reverseTopologicalTraversal()) {
-				Set<Node> dfx = this.dominanceFrontiers.get(x);
+			for (int x : treePostorder) {
+				int count = 0;
 
 				// Compute DF(local)
-				for (Node y : graph.getSuccessors(x)) {
-					if (idom.get(y) != x) {
-						dfx.add(y);
+				for (int i = index.successorOffsets[x]; i < index.successorOffsets[x + 1]; i++) {
+					int y = index.successorTargets[i];
+					if (idomIds[y] != x && mark[y] != x) {
+						mark[y] = x;
+						if (count == buffer.length) {
+							buffer = Arrays.copyOf(buffer, count * 2);
+						}
+						buffer[count++] = y;
 					}
 				}
 
 				// Compute DF(up)
-				for (Node z : this.dominatorTree.get(x)) {
-					for (Node y : this.dominanceFrontiers.get(z)) {
-						if (idom.get(y) != x) {
-							dfx.add(y);
+				for (int c = childOffsets[x]; c < childOffsets[x + 1]; c++) {
+					for (int y : df[children[c]]) {
+						if (idomIds[y] != x && mark[y] != x) {
+							mark[y] = x;
+							if (count == buffer.length) {
+								buffer = Arrays.copyOf(buffer, count * 2);
+							}
+							buffer[count++] = y;
 						}
 					}
 				}
+
+				df[x] = Arrays.copyOf(buffer, count);
 			}
+
+			int[] empty = new int[0];
+			for (int v = 0; v < size; v++) {
+				if (df[v] == null) {
+					df[v] = empty;
+				}
+			}
+			this.frontiers = df;
 		}
+		return this.frontiers;
+	}
 
-		return this.dominanceFrontiers;
+	/**
+	 * Computes the iterated dominance frontier DF+(S) of the given nodes, the
+	 * limit of DF(S), DF(S u DF(S)), ... (for example the phi placement
+	 * points of the definitions in S). Nodes that are unreachable or not in
+	 * the graph are ignored.
+	 * 
+	 * @param nodes
+	 *            the set S
+	 * @return the nodes of the iterated dominance frontier
+	 */
+	public Set<Node> getIteratedDominanceFrontier(Iterable<Node> nodes) {
+		int count = 0;
+		int[] ids = new int[16];
+		for (Node node : nodes) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+			}
+			ids[count++] = index.getId(node);
+		}
+		Set<Node> result = new HashSet<Node>();
+		for (int id : getIteratedDominanceFrontier(Arrays.copyOf(ids, count))) {
+			if (index.getNode(id) != null) {
+				result.add(index.getNode(id));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the iterated dominance frontier of the nodes with the given ids
+	 * in linear time with the piggybank variant of the Sreedhar-Gao DJ-graph
+	 * algorithm, without materialising any dominance frontier.
+	 * 
+	 * Nodes are taken from a bank of buckets indexed by dominator tree depth,
+	 * deepest first. From each node x the dominator subtree below it is walked
+	 * once over all iterations, and every join edge (an edge y->z where y is
+	 * not idom(z)) that leaves the subtree to a node z no deeper than x puts z
+	 * in the frontier. Frontier nodes not in the input are banked in turn.
+	 * 
+	 * @param ids
+	 *            the ids of the set S
+	 * @return the ids of the iterated dominance frontier
+	 */
+	public int[] getIteratedDominanceFrontier(int[] ids) {
+		int size = index.size();
+		int height = 0;
+		for (int d : depths) {
+			height = Math.max(height, d + 1);
+		}
+		int[] bankHead = new int[height];
+		int[] bankNext = new int[size];
+		Arrays.fill(bankHead, -1);
+		boolean[] defining = new boolean[size];
+		boolean[] inFrontier = new boolean[size];
+		boolean[] visited = new boolean[size];
+		int[] worklist = new int[size];
+		int[] result = new int[size];
+		int resultCount = 0;
+
+		int level = -1;
+		for (int id : ids) {
+			if (id < 0 || depths[id] == -1 || defining[id]) {
+				continue;
+			}
+			defining[id] = true;
+			bankNext[id] = bankHead[depths[id]];
+			bankHead[depths[id]] = id;
+			level = Math.max(level, depths[id]);
+		}
+
+		// banked nodes are never deeper than the current root, so the level
+		// only ever decreases
+		while (level >= 0) {
+			int root = bankHead[level];
+			if (root == -1) {
+				level--;
+				continue;
+			}
+			bankHead[level] = bankNext[root];
+			int rootDepth = depths[root];
+
+			int top = 0;
+			if (!visited[root]) {
+				visited[root] = true;
+				worklist[top++] = root;
+			}
+			while (top > 0) {
+				int y = worklist[--top];
+
+				// join edges out of the subtree
+				for (int i = index.successorOffsets[y]; i < index.successorOffsets[y + 1]; i++) {
+					int z = index.successorTargets[i];
+					if (idomIds[z] == y || depths[z] > rootDepth || inFrontier[z]) {
+						continue;
+					}
+					inFrontier[z] = true;
+					result[resultCount++] = z;
+					if (!defining[z]) {
+						bankNext[z] = bankHead[depths[z]];
+						bankHead[depths[z]] = z;
+					}
+				}
+
+				// dominator tree edges into the subtree
+				for (int c = childOffsets[y]; c < childOffsets[y + 1]; c++) {
+					int child = children[c];
+					if (!visited[child]) {
+						visited[child] = true;
+						worklist[top++] = child;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(result, resultCount);
 	}
 
 	/**
@@ -209,7 +478,7 @@ public class DominatorTree {
 	 *         List.
 	 */
 	public List<Node> topologicalTraversal() {
-		return Collections.unmodifiableList(getToplogicalTraversalImplementation());
+		return new NodeList(treePreorder, false);
 	}
 
 	/**
@@ -220,149 +489,184 @@ public class DominatorTree {
 	 *         immutable List.
 	 */
 	public Iterable<Node> reverseTopologicalTraversal() {
-		return new Iterable<Node>() {
-			@Override
-			public Iterator<Node> iterator() {
-				return getToplogicalTraversalImplementation().descendingIterator();
-			}
-		};
+		return new NodeList(treePreorder, true);
 	}
 
 	/**
-	 * Depth-first search the graph and initialize data structures.
+	 * Returns the node ids of the dominator tree in preorder, each node appears
+	 * after its immediate dominator.
 	 * 
-	 * @param roots
-	 *            the root(s) of the flowgraph. One of these is the start block, the
-	 *            others are exception handlers.
+	 * @return a copy of the preorder
 	 */
-	private void dfs(AtlasSet<Node> roots) {
-		Iterator<Node> it = new DepthFirstPreorderIterator(graph, roots);
-
-		while (it.hasNext()) {
-			Node node = it.next();
-
-			if (!semi.containsKey(node)) {
-				vertex.add(node);
-
-				// Initial assumption: the node's semidominator is itself.
-				semi.put(node, semi.size());
-				label.put(node, node);
-
-				for (Node child : graph.getSuccessors(node)) {
-					pred.get(child).add(node);
-					if (!semi.containsKey(child)) {
-						parent.put(child, node);
-					}
-				}
-			}
-		}
+	public int[] getTreePreorder() {
+		return Arrays.copyOf(treePreorder, treePreorder.length);
 	}
 
 	/**
-	 * Steps 2, 3, and 4 of Lengauer-Tarjan.
+	 * Returns the node ids of the dominator tree in postorder, each node appears
+	 * before its immediate dominator.
+	 * 
+	 * @return a copy of the postorder
 	 */
-	private void computeDominators() {
-		int lastSemiNumber = semi.size() - 1;
-
-		for (int i = lastSemiNumber; i > 0; i--) {
-			Node w = vertex.get(i);
-			Node p = this.parent.get(w);
-
-			// step 2: compute semidominators
-			// for each v in pred(w)...
-			int semidominator = semi.get(w);
-			for (Node v : pred.get(w)) {
-				semidominator = Math.min(semidominator, semi.get(eval(v)));
-			}
-
-			semi.put(w, semidominator);
-			bucket.get(vertex.get(semidominator)).add(w);
-
-			// Link w into the forest via its parent, p
-			link(p, w);
-
-			// step 3: implicitly compute idominators
-			// for each v in bucket(parent(w)) ...
-			for (Node v : bucket.get(p)) {
-				Node u = eval(v);
-				if (semi.get(u) < semi.get(v)) {
-					idom.put(v, u);
-				} else {
-					idom.put(v, p);
-				}
-			}
+	public int[] getTreePostorder() {
+		return Arrays.copyOf(treePostorder, treePostorder.length);
+	}
 
-			bucket.get(p).clear();
-		}
+	/**
+	 * Returns true if a dominates b. Every node dominates itself and
+	 * unreachable nodes neither dominate nor are dominated. Answered in
+	 * constant time from the interval numbering of the dominator tree.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public boolean dominates(Node a, Node b) {
+		return dominates(index.getId(a), index.getId(b));
+	}
 
-		// step 4: explicitly compute idominators
-		for (int i = 1; i <= lastSemiNumber; i++) {
-			Node w = vertex.get(i);
-			if (idom.get(w) != vertex.get((semi.get(w)))) {
-				idom.put(w, idom.get(idom.get(w)));
-			}
+	/**
+	 * Returns true if the node with id a dominates the node with id b.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public boolean dominates(int a, int b) {
+		if (a < 0 || b < 0 || preNumber[a] == -1 || preNumber[b] == -1) {
+			return false;
 		}
+		return preNumber[a] <= preNumber[b] && postNumber[b] <= postNumber[a];
 	}
 
 	/**
-	 * Extract the node with the least-numbered semidominator in the (processed)
-	 * ancestors of the given node.
+	 * Returns true if a dominates b and a is not b.
 	 * 
-	 * @param v
-	 *            - the node of interest.
-	 * @return "If v is the root of a tree in the forest, return v. Otherwise, let r
-	 *         be the root of the tree which contains v. Return any vertex u != r of
-	 *         miniumum semi(u) on the path r-*v."
-	 */
-	private Node eval(Node v) {
-		// This version of Lengauer-Tarjan implements
-		// eval(v) as a path-compression procedure.
-		compress(v);
-		return label.get(v);
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public boolean strictlyDominates(Node a, Node b) {
+		return strictlyDominates(index.getId(a), index.getId(b));
 	}
 
 	/**
-	 * Traverse ancestor pointers back to a subtree root, then propagate the least
-	 * semidominator seen along this path through the "label" map.
+	 * Returns true if the node with id a dominates the node with id b and a is
+	 * not b.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return
 	 */
-	private void compress(Node v) {
-		Stack<Node> worklist = new Stack<Node>();
-		worklist.add(v);
-
-		Node a = this.ancestor.get(v);
-
-		// Traverse back to the subtree root.
-		while (this.ancestor.containsKey(a)) {
-			worklist.push(a);
-			a = this.ancestor.get(a);
-		}
+	public boolean strictlyDominates(int a, int b) {
+		return a != b && dominates(a, b);
+	}
 
-		// Propagate semidominator information forward.
-		Node ancestor = worklist.pop();
-		int leastSemi = semi.get(label.get(ancestor));
+	/**
+	 * Returns the depth of the given node in the dominator tree, 0 for the
+	 * root and -1 for nodes that are unreachable or not in the graph.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public int depth(Node node) {
+		return depth(index.getId(node));
+	}
 
-		while (!worklist.empty()) {
-			Node descendent = worklist.pop();
-			int currentSemi = semi.get(label.get(descendent));
+	/**
+	 * Returns the depth of the node with the given id in the dominator tree.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public int depth(int id) {
+		return id < 0 ? -1 : depths[id];
+	}
 
-			if (currentSemi > leastSemi) {
-				label.put(descendent, label.get(ancestor));
-			} else {
-				leastSemi = currentSemi;
+	/**
+	 * Populates the node keyed views of the dominator engine results and builds
+	 * the dominator tree orders and interval numbering.
+	 */
+	private void adapt(DominatorEngine engine) {
+		int[] idoms = engine.getIdoms();
+		int[] semidominators = engine.getSemidominators();
+		int[] preorder = engine.getPreorder();
+		for (int id : preorder) {
+			Node node = index.getNode(id);
+			if (node == null) {
+				continue; // virtual entry or exit
+			}
+			semi.put(node, semidominators[id]);
+			if (idoms[id] != -1 && index.getNode(idoms[id]) != null) {
+				idom.put(node, index.getNode(idoms[id]));
 			}
-
-			// Prepare to process the next iteration.
-			ancestor = descendent;
 		}
+		this.idomIds = idoms;
+		this.orderTree(preorder);
 	}
 
 	/**
-	 * Simple version of link(parent,child) simply links the child into the parent's
-	 * forest, with no attempt to balance the subtrees or otherwise optimize
-	 * searching.
+	 * Builds the child lists of the dominator tree with a counting sort on the
+	 * immediate dominators, then numbers the tree in preorder and postorder
+	 * with an iterative depth-first search, recording each node's numbers and
+	 * depth. Runs in O(n).
 	 */
-	private void link(Node parent, Node child) {
-		this.ancestor.put(child, parent);
+	private void orderTree(int[] reachable) {
+		int size = index.size();
+		int count = reachable.length;
+		childOffsets = new int[size + 1];
+		children = new int[Math.max(count - 1, 0)];
+		for (int v : reachable) {
+			if (idomIds[v] != -1) {
+				childOffsets[idomIds[v] + 1]++;
+			}
+		}
+		for (int v = 0; v < size; v++) {
+			childOffsets[v + 1] += childOffsets[v];
+		}
+		int[] cursor = Arrays.copyOf(childOffsets, size);
+		for (int v : reachable) {
+			if (idomIds[v] != -1) {
+				children[cursor[idomIds[v]]++] = v;
+			}
+		}
+
+		treePreorder = new int[count];
+		treePostorder = new int[count];
+		preNumber = new int[size];
+		postNumber = new int[size];
+		depths = new int[size];
+		Arrays.fill(preNumber, -1);
+		Arrays.fill(postNumber, -1);
+		Arrays.fill(depths, -1);
+		if (count == 0) {
+			return;
+		}
+		int[] stack = new int[count];
+		int pre = 0;
+		int post = 0;
+		int top = 0;
+		int root = reachable[0];
+		stack[top++] = root;
+		cursor[root] = childOffsets[root];
+		depths[root] = 0;
+		preNumber[root] = pre;
+		treePreorder[pre++] = root;
+		while (top > 0) {
+			int v = stack[top - 1];
+			if (cursor[v] < childOffsets[v + 1]) {
+				int w = children[cursor[v]++];
+				cursor[w] = childOffsets[w];
+				depths[w] = top;
+				preNumber[w] = pre;
+				treePreorder[pre++] = w;
+				stack[top++] = w;
+			} else {
+				postNumber[v] = post;
+				treePostorder[post++] = v;
+				top--;
+			}
+		}
 	}
 
 	/**
@@ -389,27 +693,25 @@ public class DominatorTree {
 	}
 
 	/**
-	 * Create/fetch the topological traversal of the dominator tree.
-	 * 
-	 * @return {@link this.topologicalTraversal}, the traversal of the dominator
-	 *         tree such that for any node n with a dominator, n appears before
-	 *         idom(n).
+	 * An immutable list view of an array of node ids, optionally in reverse.
 	 */
-	private LinkedList<Node> getToplogicalTraversalImplementation() {
-		if (this.topologicalTraversalImpl == null) {
-			this.topologicalTraversalImpl = new LinkedList<Node>();
+	private class NodeList extends AbstractList<Node> implements RandomAccess {
+		private final int[] ids;
+		private final boolean reversed;
 
-			for (Node node : this.vertex) {
-				int idx = this.topologicalTraversalImpl.indexOf(this.idom.get(node));
+		private NodeList(int[] ids, boolean reversed) {
+			this.ids = ids;
+			this.reversed = reversed;
+		}
 
-				if (idx != -1) {
-					this.topologicalTraversalImpl.add(idx + 1, node);
-				} else {
-					this.topologicalTraversalImpl.add(node);
-				}
-			}
+		@Override
+		public Node get(int i) {
+			return index.getNode(ids[reversed ? ids.length - 1 - i : i]);
 		}
 
-		return this.topologicalTraversalImpl;
+		@Override
+		public int size() {
+			return ids.length;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,880 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.se421.slice.log.Log;
+
+/**
+ * A dominator tree that is maintained under edge insertions and deletions
+ * instead of being recomputed for the whole graph.
+ *
+ * The tree is computed once with {@link DominatorEngine} and then updated in
+ * place:
+ * <ul>
+ * <li>Inserting an edge (x,y) between reachable nodes uses the depth based
+ * search of Georgiadis et al.: only nodes below y in the tree that are deeper
+ * than nca(x,y)+1 are visited, and those that become reachable around their
+ * old dominators are re-parented to nca(x,y). An edge that makes nodes
+ * reachable computes dominators for just the newly reachable region.</li>
+ * <li>Deleting an edge (x,y) recomputes dominators locally with Semi-NCA on
+ * the dominator subtree of nca(x,y), the only region whose idoms can change.
+ * When y becomes unreachable its subtree is dropped and the subtree of the
+ * nearest common dominator of the edges leaving it is recomputed.</li>
+ * </ul>
+ * Dominance frontiers are then recomputed for the updated subtree and its
+ * ancestors only. Nodes whose immediate dominator or frontier changed are
+ * recorded, see {@link #drainChangedNodes()}, so that derived edges can be
+ * re-indexed for just those nodes.
+ *
+ * The node set is fixed to the nodes of the {@link IndexedGraph} the tree was
+ * built from. Instances are not thread safe.
+ */
+public class DynamicDominatorTree {
+
+	/**
+	 * The graph in the direction it was given
+	 */
+	private final IndexedGraph graph;
+
+	/**
+	 * True if this tree holds post-dominators, edges are reversed on update
+	 */
+	private final boolean postDominance;
+
+	/**
+	 * The root of the tree
+	 */
+	private final int root;
+
+	/**
+	 * Mutable adjacency lists in the direction of the computation, parallel
+	 * edges are kept so that deleting one of them leaves the others
+	 */
+	private int[][] successors;
+	private int[] successorCount;
+	private int[][] predecessors;
+	private int[] predecessorCount;
+
+	/**
+	 * Immediate dominator and tree depth by node id, -1 for the root and
+	 * unreachable nodes (depth 0 for the root)
+	 */
+	private int[] idom;
+	private int[] depth;
+
+	/**
+	 * Child lists of the dominator tree as doubly linked sibling lists
+	 */
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] previousSibling;
+
+	/**
+	 * Dominance frontier by node id
+	 */
+	private int[][] frontier;
+
+	/**
+	 * Nodes whose immediate dominator or frontier changed since the last drain
+	 */
+	private boolean[] changed;
+	private int[] changedNodes;
+	private int changedCount = 0;
+
+	/**
+	 * Reusable scratch space, marks are compared against a stamp that is
+	 * bumped for every use so they never need to be cleared
+	 */
+	private int[] mark;
+	private int stamp = 0;
+	private int[] scratch;
+	private int[] localNumber;
+	private int[] bucketHead;
+	private int[] bucketNext;
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * Constructs the dominator tree of the given graph rooted at its entry
+	 *
+	 * @param graph
+	 */
+	public DynamicDominatorTree(IndexedGraph graph) {
+		this(graph, false);
+	}
+
+	/**
+	 * Constructs the post-dominator tree of the given graph rooted at its exit.
+	 * Edges passed to {@link #insertEdge(int, int)} and
+	 * {@link #deleteEdge(int, int)} are edges of the given graph.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static DynamicDominatorTree postDominators(IndexedGraph graph) {
+		return new DynamicDominatorTree(graph, true);
+	}
+
+	private DynamicDominatorTree(IndexedGraph graph, boolean postDominance) {
+		this.graph = graph;
+		this.postDominance = postDominance;
+		IndexedGraph directed = postDominance ? graph.reverse() : graph;
+		this.root = directed.getEntry();
+		int size = directed.size();
+
+		successors = new int[size][];
+		successorCount = new int[size];
+		predecessors = new int[size][];
+		predecessorCount = new int[size];
+		for(int v=0; v<size; v++){
+			successors[v] = Arrays.copyOfRange(directed.successorTargets, directed.successorOffsets[v], directed.successorOffsets[v + 1]);
+			successorCount[v] = successors[v].length;
+			predecessors[v] = Arrays.copyOfRange(directed.predecessorTargets, directed.predecessorOffsets[v], directed.predecessorOffsets[v + 1]);
+			predecessorCount[v] = predecessors[v].length;
+		}
+
+		mark = new int[size];
+		scratch = new int[size];
+		localNumber = new int[size];
+		bucketHead = new int[size];
+		bucketNext = new int[size];
+		Arrays.fill(bucketHead, -1);
+		changed = new boolean[size];
+		changedNodes = new int[size];
+
+		DominatorEngine engine = new DominatorEngine(directed);
+		engine.compute(DominatorAlgorithm.AUTOMATIC, root, EMPTY);
+		idom = Arrays.copyOf(engine.getIdoms(), size);
+		depth = new int[size];
+		firstChild = new int[size];
+		nextSibling = new int[size];
+		previousSibling = new int[size];
+		Arrays.fill(depth, -1);
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+		Arrays.fill(previousSibling, -1);
+		frontier = new int[size][];
+		Arrays.fill(frontier, EMPTY);
+
+		// in depth-first preorder every node follows its immediate dominator
+		int[] preorder = engine.getPreorder();
+		for(int v : preorder){
+			if(idom[v] == -1){
+				depth[v] = 0;
+			} else {
+				depth[v] = depth[idom[v]] + 1;
+				link(v, idom[v]);
+			}
+		}
+		for(int i=preorder.length-1; i>=0; i--){
+			frontier[preorder[i]] = computeFrontier(preorder[i]);
+		}
+	}
+
+	/**
+	 * Returns the graph the tree was built from, in its original direction
+	 *
+	 * @return
+	 */
+	public IndexedGraph getIndexedGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns true if this tree holds post-dominators
+	 *
+	 * @return
+	 */
+	public boolean isPostDominance() {
+		return postDominance;
+	}
+
+	/**
+	 * Returns the immediate dominator of the node with the given id, -1 for the
+	 * root and unreachable nodes
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int getIdom(int id) {
+		return idom[id];
+	}
+
+	/**
+	 * Returns the immediate dominator of the given node, null for the root,
+	 * unreachable nodes and virtual nodes
+	 *
+	 * @param node
+	 * @return
+	 */
+	public Node getIdom(Node node) {
+		int id = graph.getId(node);
+		return id == -1 || idom[id] == -1 ? null : graph.getNode(idom[id]);
+	}
+
+	/**
+	 * Returns the current map of immediate dominators
+	 *
+	 * @return
+	 */
+	public Map<Node, Node> getIdoms() {
+		Map<Node, Node> result = new HashMap<Node, Node>();
+		for(int v=0; v<idom.length; v++){
+			if(idom[v] != -1 && graph.getNode(v) != null && graph.getNode(idom[v]) != null){
+				result.put(graph.getNode(v), graph.getNode(idom[v]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the depth of the node with the given id in the tree, 0 for the
+	 * root and -1 for unreachable nodes
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int depth(int id) {
+		return depth[id];
+	}
+
+	/**
+	 * Returns true if the node with id a dominates the node with id b. Runs in
+	 * time proportional to the difference of their depths.
+	 *
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public boolean dominates(int a, int b) {
+		if(depth[a] == -1 || depth[b] == -1){
+			return false;
+		}
+		while(depth[b] > depth[a]){
+			b = idom[b];
+		}
+		return a == b;
+	}
+
+	/**
+	 * Returns the ids of the dominance frontier of the node with the given id
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int[] getDominanceFrontier(int id) {
+		return Arrays.copyOf(frontier[id], frontier[id].length);
+	}
+
+	/**
+	 * Returns the dominance frontier of the given node
+	 *
+	 * @param node
+	 * @return
+	 */
+	public Set<Node> getDominanceFrontier(Node node) {
+		Set<Node> result = new HashSet<Node>();
+		int id = graph.getId(node);
+		if(id != -1){
+			for(int y : frontier[id]){
+				if(graph.getNode(y) != null){
+					result.add(graph.getNode(y));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the ids of the nodes whose immediate dominator or dominance
+	 * frontier changed since the last call, and clears the record
+	 *
+	 * @return
+	 */
+	public int[] drainChangedNodes() {
+		int[] result = Arrays.copyOf(changedNodes, changedCount);
+		for(int v : result){
+			changed[v] = false;
+		}
+		changedCount = 0;
+		return result;
+	}
+
+	/**
+	 * Inserts an edge of the graph and updates the tree
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public void insertEdge(Node from, Node to) {
+		insertEdge(checkedId(from), checkedId(to));
+	}
+
+	/**
+	 * Deletes an edge of the graph and updates the tree
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public void deleteEdge(Node from, Node to) {
+		deleteEdge(checkedId(from), checkedId(to));
+	}
+
+	/**
+	 * Inserts an edge between the nodes with the given ids and updates the tree
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public void insertEdge(int from, int to) {
+		if(postDominance){
+			int swap = from;
+			from = to;
+			to = swap;
+		}
+		successors[from] = append(successors[from], successorCount[from]++, to);
+		predecessors[to] = append(predecessors[to], predecessorCount[to]++, from);
+		if(depth[from] == -1){
+			// edges out of unreachable nodes do not affect dominance
+			return;
+		}
+		int region;
+		if(depth[to] == -1){
+			region = insertUnreachable(from, to);
+		} else {
+			region = insertReachable(from, to);
+		}
+		updateFrontiers(region == -1 ? from : region, region != -1);
+	}
+
+	/**
+	 * Deletes one edge between the nodes with the given ids and updates the
+	 * tree
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public void deleteEdge(int from, int to) {
+		if(postDominance){
+			int swap = from;
+			from = to;
+			to = swap;
+		}
+		if(!remove(successors[from], successorCount[from], to) || !remove(predecessors[to], predecessorCount[to], from)){
+			String message = "Cannot delete an edge that is not in the graph!";
+			IllegalArgumentException e = new IllegalArgumentException(message);
+			Log.error(message, e);
+			throw e;
+		}
+		successorCount[from]--;
+		predecessorCount[to]--;
+		if(depth[from] == -1 || contains(successors[from], successorCount[from], to)){
+			// unreachable or a parallel edge remains, nothing changes
+			return;
+		}
+		int nca = nca(from, to);
+		if(nca == to){
+			// to dominates from, every path using the edge has a shortcut
+			updateFrontiers(from, false);
+			return;
+		}
+		if(idom[to] != from || hasProperSupport(to)){
+			// to stays reachable, only idoms below nca(from, to) can change
+			recomputeSubtree(nca);
+			updateFrontiers(nca, true);
+		} else {
+			updateFrontiers(deleteUnreachable(from, to), true);
+		}
+	}
+
+	/**
+	 * Depth based search for an inserted edge between reachable nodes. Visits
+	 * the nodes reachable from to that are deeper than nca(from, to)+1, in
+	 * decreasing depth, and re-parents the ones that are now reachable around
+	 * their old immediate dominator to nca(from, to).
+	 *
+	 * @return nca(from, to) if the tree changed, -1 otherwise
+	 */
+	private int insertReachable(int from, int to) {
+		int nca = nca(from, to);
+		int ncaDepth = depth[nca];
+		if(ncaDepth + 1 >= depth[to]){
+			return -1;
+		}
+
+		int visited = ++stamp;
+		int[] affected = scratch;
+		int affectedCount = 0;
+		int[] unaffected = localNumber;
+		int level = depth[to];
+		mark[to] = visited;
+		bucketNext[to] = bucketHead[level];
+		bucketHead[level] = to;
+		while(level > ncaDepth){
+			int node = bucketHead[level];
+			if(node == -1){
+				level--;
+				continue;
+			}
+			bucketHead[level] = bucketNext[node];
+			affected[affectedCount++] = node;
+			int currentDepth = depth[node];
+			int unaffectedCount = 0;
+			while(true){
+				for(int i=0; i<successorCount[node]; i++){
+					int successor = successors[node][i];
+					if(depth[successor] <= ncaDepth + 1 || mark[successor] == visited){
+						continue;
+					}
+					mark[successor] = visited;
+					if(depth[successor] > currentDepth){
+						// still dominated below the current node
+						unaffected[unaffectedCount++] = successor;
+					} else {
+						bucketNext[successor] = bucketHead[depth[successor]];
+						bucketHead[depth[successor]] = successor;
+					}
+				}
+				if(unaffectedCount == 0){
+					break;
+				}
+				node = unaffected[--unaffectedCount];
+			}
+		}
+
+		int[] affectedNodes = Arrays.copyOf(affected, affectedCount);
+		for(int node : affectedNodes){
+			unlink(node);
+			link(node, nca);
+			idom[node] = nca;
+			markChanged(node);
+		}
+		for(int node : affectedNodes){
+			updateDepths(node);
+		}
+		return nca;
+	}
+
+	/**
+	 * Handles an inserted edge into an unreachable node by computing
+	 * dominators for the newly reachable region, all of which is dominated by
+	 * to, then inserting the edges from the region into the previously
+	 * reachable nodes.
+	 *
+	 * @return the root of the dominator subtree that changed
+	 */
+	private int insertUnreachable(int from, int to) {
+		int region = ++stamp;
+		int[] nodes = scratch;
+		int count = 0;
+		nodes[count++] = to;
+		mark[to] = region;
+		int[] leaving = new int[8];
+		int leavingCount = 0;
+		for(int i=0; i<count; i++){
+			int v = nodes[i];
+			for(int j=0; j<successorCount[v]; j++){
+				int w = successors[v][j];
+				if(depth[w] != -1){
+					// edge into a previously reachable node
+					leaving = append(leaving, leavingCount++, v);
+					leaving = append(leaving, leavingCount++, w);
+				} else if(mark[w] != region){
+					mark[w] = region;
+					nodes[count++] = w;
+				}
+			}
+		}
+		int[] regionNodes = Arrays.copyOf(nodes, count);
+
+		idom[to] = from;
+		depth[to] = depth[from] + 1;
+		link(to, from);
+		markChanged(to);
+		computeLocalDominators(to, regionNodes);
+
+		// edges leaving the region are insertions between reachable nodes
+		int result = from;
+		for(int i=0; i<leavingCount; i+=2){
+			int nca = insertReachable(leaving[i], leaving[i + 1]);
+			if(nca != -1){
+				result = nca(result, nca);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Handles a deleted edge after which to is unreachable. The dominator
+	 * subtree of to is dropped, then the subtree of the nearest common
+	 * dominator of from and the targets of all edges leaving the dropped
+	 * subtree is recomputed.
+	 *
+	 * @return the root of the dominator subtree that changed
+	 */
+	private int deleteUnreachable(int from, int to) {
+		int[] dropped = collectSubtree(to);
+		int droppedMark = stamp;
+		int result = from;
+		boolean leaves = false;
+		for(int v : dropped){
+			for(int j=0; j<successorCount[v]; j++){
+				int w = successors[v][j];
+				if(mark[w] != droppedMark && depth[w] != -1){
+					result = nca(result, w);
+					leaves = true;
+				}
+			}
+		}
+
+		unlink(to);
+		for(int v : dropped){
+			idom[v] = -1;
+			depth[v] = -1;
+			firstChild[v] = -1;
+			nextSibling[v] = -1;
+			previousSibling[v] = -1;
+			if(frontier[v].length > 0){
+				frontier[v] = EMPTY;
+			}
+			markChanged(v);
+		}
+		if(leaves){
+			recomputeSubtree(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if some reachable predecessor of the given node is not
+	 * dominated by it, so it stays reachable without its immediate dominator
+	 */
+	private boolean hasProperSupport(int node) {
+		for(int i=0; i<predecessorCount[node]; i++){
+			int predecessor = predecessors[node][i];
+			if(depth[predecessor] != -1 && !dominates(node, predecessor)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Recomputes the immediate dominators of the dominator subtree rooted at
+	 * the given node. Every path from the subtree root to a node of its
+	 * subtree stays inside the subtree, so the subtree alone determines them.
+	 */
+	private void recomputeSubtree(int subtreeRoot) {
+		computeLocalDominators(subtreeRoot, collectSubtree(subtreeRoot));
+	}
+
+	/**
+	 * Runs Semi-NCA on the subgraph induced by the given region from the
+	 * given root, whose own idom and depth must already be set. Rebuilds the
+	 * child lists and depths of the region and records changed idoms.
+	 */
+	private void computeLocalDominators(int regionRoot, int[] region) {
+		int n = region.length;
+		int inRegion = ++stamp;
+		for(int v : region){
+			mark[v] = inRegion;
+			localNumber[v] = -1;
+		}
+
+		// depth-first search numbering the region in preorder
+		int[] vertex = new int[n];
+		int[] parent = new int[n];
+		int[] stack = new int[n];
+		int[] cursor = new int[n];
+		int count = 0;
+		localNumber[regionRoot] = count;
+		vertex[count] = regionRoot;
+		parent[count] = -1;
+		count++;
+		int top = 0;
+		stack[top++] = regionRoot;
+		cursor[0] = 0;
+		while(top > 0){
+			int v = stack[top - 1];
+			int number = localNumber[v];
+			if(cursor[number] < successorCount[v]){
+				int w = successors[v][cursor[number]++];
+				if(mark[w] == inRegion && localNumber[w] == -1){
+					localNumber[w] = count;
+					vertex[count] = w;
+					parent[count] = number;
+					cursor[count] = 0;
+					count++;
+					stack[top++] = w;
+				}
+			} else {
+				top--;
+			}
+		}
+
+		// semidominators with path compression, then Semi-NCA
+		int[] semi = new int[n];
+		int[] label = new int[n];
+		int[] ancestor = new int[n];
+		int[] localIdom = new int[n];
+		for(int i=0; i<count; i++){
+			semi[i] = i;
+			label[i] = i;
+			ancestor[i] = -1;
+		}
+		for(int w=count-1; w>0; w--){
+			int s = parent[w];
+			int v = vertex[w];
+			for(int i=0; i<predecessorCount[v]; i++){
+				int p = predecessors[v][i];
+				if(mark[p] != inRegion || localNumber[p] == -1){
+					continue;
+				}
+				int u = eval(localNumber[p], ancestor, label, semi, stack);
+				s = Math.min(s, semi[u]);
+			}
+			semi[w] = s;
+			ancestor[w] = parent[w];
+		}
+		localIdom[0] = -1;
+		for(int w=1; w<count; w++){
+			int x = parent[w];
+			while(x > semi[w]){
+				x = localIdom[x];
+			}
+			localIdom[w] = x;
+		}
+
+		// rebuild the child lists and depths of the region
+		for(int v : region){
+			firstChild[v] = -1;
+			if(v != regionRoot){
+				nextSibling[v] = -1;
+				previousSibling[v] = -1;
+			}
+		}
+		for(int w=1; w<count; w++){
+			int v = vertex[w];
+			int dominator = vertex[localIdom[w]];
+			if(idom[v] != dominator){
+				idom[v] = dominator;
+				markChanged(v);
+			}
+			link(v, dominator);
+			depth[v] = depth[dominator] + 1;
+		}
+		if(count < n){
+			Log.warning("Dominator subtree was not fully reachable from its root, marking the rest unreachable");
+			for(int v : region){
+				if(localNumber[v] == -1){
+					idom[v] = -1;
+					depth[v] = -1;
+					frontier[v] = EMPTY;
+					markChanged(v);
+				}
+			}
+		}
+	}
+
+	private static int eval(int v, int[] ancestor, int[] label, int[] semi, int[] worklist) {
+		if(ancestor[v] == -1){
+			return v;
+		}
+		int top = 0;
+		int u = v;
+		while(ancestor[ancestor[u]] != -1){
+			worklist[top++] = u;
+			u = ancestor[u];
+		}
+		while(top > 0){
+			int x = worklist[--top];
+			int a = ancestor[x];
+			if(semi[label[a]] < semi[label[x]]){
+				label[x] = label[a];
+			}
+			ancestor[x] = ancestor[a];
+		}
+		return label[v];
+	}
+
+	/**
+	 * Recomputes the dominance frontiers that an update may have changed. If
+	 * the tree changed below subtreeRoot the frontiers of that whole subtree
+	 * are recomputed (bottom up), then those of subtreeRoot's ancestors.
+	 * Otherwise only the given node and its ancestors can be affected.
+	 */
+	private void updateFrontiers(int subtreeRoot, boolean subtreeChanged) {
+		if(subtreeChanged){
+			int[] nodes = collectSubtree(subtreeRoot);
+			// collectSubtree lists parents before children
+			for(int i=nodes.length-1; i>0; i--){
+				setFrontier(nodes[i], computeFrontier(nodes[i]));
+			}
+		}
+		for(int v=subtreeRoot; v!=-1; v=idom[v]){
+			setFrontier(v, computeFrontier(v));
+		}
+	}
+
+	private void setFrontier(int node, int[] updated) {
+		int[] previous = frontier[node];
+		frontier[node] = updated;
+		if(previous.length != updated.length){
+			markChanged(node);
+			return;
+		}
+		int same = ++stamp;
+		for(int y : previous){
+			mark[y] = same;
+		}
+		for(int y : updated){
+			if(mark[y] != same){
+				markChanged(node);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Computes the dominance frontier of a node from its successors and the
+	 * frontiers of its children in the tree
+	 */
+	private int[] computeFrontier(int x) {
+		int seen = ++stamp;
+		int count = 0;
+		int[] buffer = new int[8];
+		for(int i=0; i<successorCount[x]; i++){
+			int y = successors[x][i];
+			if(idom[y] != x && depth[y] != -1 && mark[y] != seen){
+				mark[y] = seen;
+				buffer = append(buffer, count++, y);
+			}
+		}
+		for(int c=firstChild[x]; c!=-1; c=nextSibling[c]){
+			for(int y : frontier[c]){
+				if(idom[y] != x && mark[y] != seen){
+					mark[y] = seen;
+					buffer = append(buffer, count++, y);
+				}
+			}
+		}
+		return count == 0 ? EMPTY : Arrays.copyOf(buffer, count);
+	}
+
+	/**
+	 * Returns the nodes of the dominator subtree rooted at the given node,
+	 * parents before children, and marks them with the current stamp
+	 */
+	private int[] collectSubtree(int subtreeRoot) {
+		int subtree = ++stamp;
+		int[] nodes = scratch;
+		int count = 0;
+		nodes[count++] = subtreeRoot;
+		mark[subtreeRoot] = subtree;
+		for(int i=0; i<count; i++){
+			for(int c=firstChild[nodes[i]]; c!=-1; c=nextSibling[c]){
+				mark[c] = subtree;
+				nodes[count++] = c;
+			}
+		}
+		return Arrays.copyOf(nodes, count);
+	}
+
+	/**
+	 * Sets the depths of the subtree below the given node from its idom
+	 */
+	private void updateDepths(int subtreeRoot) {
+		int[] nodes = collectSubtree(subtreeRoot);
+		for(int v : nodes){
+			depth[v] = depth[idom[v]] + 1;
+		}
+	}
+
+	private int nca(int a, int b) {
+		while(depth[a] > depth[b]){
+			a = idom[a];
+		}
+		while(depth[b] > depth[a]){
+			b = idom[b];
+		}
+		while(a != b){
+			a = idom[a];
+			b = idom[b];
+		}
+		return a;
+	}
+
+	private void link(int child, int parent) {
+		nextSibling[child] = firstChild[parent];
+		previousSibling[child] = -1;
+		if(firstChild[parent] != -1){
+			previousSibling[firstChild[parent]] = child;
+		}
+		firstChild[parent] = child;
+	}
+
+	private void unlink(int child) {
+		int parent = idom[child];
+		if(previousSibling[child] != -1){
+			nextSibling[previousSibling[child]] = nextSibling[child];
+		} else if(parent != -1 && firstChild[parent] == child){
+			firstChild[parent] = nextSibling[child];
+		}
+		if(nextSibling[child] != -1){
+			previousSibling[nextSibling[child]] = previousSibling[child];
+		}
+		nextSibling[child] = -1;
+		previousSibling[child] = -1;
+	}
+
+	private void markChanged(int node) {
+		if(!changed[node]){
+			changed[node] = true;
+			changedNodes[changedCount++] = node;
+		}
+	}
+
+	private int checkedId(Node node) {
+		int id = graph.getId(node);
+		if(id == -1){
+			String message = "Node is not contained in the graph of this dominator tree!";
+			IllegalArgumentException e = new IllegalArgumentException(message);
+			Log.error(message, e);
+			throw e;
+		}
+		return id;
+	}
+
+	private static int[] append(int[] array, int index, int value) {
+		if(index == array.length){
+			array = Arrays.copyOf(array, Math.max(4, index * 2));
+		}
+		array[index] = value;
+		return array;
+	}
+
+	private static boolean remove(int[] array, int count, int value) {
+		for(int i=0; i<count; i++){
+			if(array[i] == value){
+				array[i] = array[count - 1];
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean contains(int[] array, int count, int value) {
+		for(int i=0; i<count; i++){
+			if(array[i] == value){
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,462 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+
+/**
+ * An immutable, int-indexed adjacency snapshot of a
+ * {@link UniqueEntryExitGraph}.
+ *
+ * Each node is assigned a dense id in [0, size()) and the forward and reverse
+ * edges are stored in compressed sparse row (CSR) form, so the neighbors of a
+ * node are the targets between its offset and the next node's offset. Parallel
+ * edges between the same pair of nodes are collapsed into a single entry.
+ *
+ * The snapshot is built once per graph and is safe to share between threads.
+ */
+public class IndexedGraph {
+
+	/**
+	 * Nodes by id
+	 */
+	private final Node[] nodes;
+
+	/**
+	 * Ids by node
+	 */
+	private final Map<Node, Integer> ids;
+
+	/**
+	 * The successors of node v are successorTargets[successorOffsets[v]] to
+	 * successorTargets[successorOffsets[v+1]-1]
+	 */
+	final int[] successorOffsets;
+	final int[] successorTargets;
+
+	/**
+	 * The predecessors of node v are predecessorTargets[predecessorOffsets[v]]
+	 * to predecessorTargets[predecessorOffsets[v+1]-1]
+	 */
+	final int[] predecessorOffsets;
+	final int[] predecessorTargets;
+
+	/**
+	 * The id of the master entry node
+	 */
+	private final int entry;
+
+	/**
+	 * The id of the master exit node
+	 */
+	private final int exit;
+
+	/**
+	 * The same graph with every edge reversed
+	 */
+	private final IndexedGraph reverse;
+
+	private IndexedGraph(Node[] nodes, Map<Node, Integer> ids, int[] successorOffsets, int[] successorTargets, int[] predecessorOffsets, int[] predecessorTargets, int entry, int exit) {
+		this.nodes = nodes;
+		this.ids = ids;
+		this.successorOffsets = successorOffsets;
+		this.successorTargets = successorTargets;
+		this.predecessorOffsets = predecessorOffsets;
+		this.predecessorTargets = predecessorTargets;
+		this.entry = entry;
+		this.exit = exit;
+		this.reverse = new IndexedGraph(this);
+	}
+
+	/**
+	 * Creates a reversed view of the given graph that shares its node ids and
+	 * adjacency arrays, with successors and predecessors (and entry and exit)
+	 * swapped
+	 */
+	private IndexedGraph(IndexedGraph forward) {
+		this.nodes = forward.nodes;
+		this.ids = forward.ids;
+		this.successorOffsets = forward.predecessorOffsets;
+		this.successorTargets = forward.predecessorTargets;
+		this.predecessorOffsets = forward.successorOffsets;
+		this.predecessorTargets = forward.successorTargets;
+		this.entry = forward.exit;
+		this.exit = forward.entry;
+		this.reverse = forward;
+	}
+
+	/**
+	 * Builds an adjacency snapshot of the given unique entry/exit graph
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static IndexedGraph build(UniqueEntryExitGraph graph) {
+		return build(graph.nodes(), graph.edges(), graph.getEntryNode(), graph.getExitNode());
+	}
+
+	/**
+	 * Builds an adjacency snapshot of the given nodes and edges. Edges with an
+	 * endpoint outside of the given node set are ignored.
+	 *
+	 * @param graphNodes
+	 * @param graphEdges
+	 * @param entryNode
+	 * @param exitNode
+	 * @return
+	 */
+	public static IndexedGraph build(AtlasSet<Node> graphNodes, AtlasSet<Edge> graphEdges, Node entryNode, Node exitNode) {
+		int size = (int) graphNodes.size();
+		Node[] nodes = new Node[size];
+		Map<Node, Integer> ids = index(graphNodes, nodes);
+		long[] keys = new long[(int) graphEdges.size()];
+		int edgeCount = encode(graphEdges, ids, keys);
+		Integer entry = entryNode == null ? null : ids.get(entryNode);
+		Integer exit = exitNode == null ? null : ids.get(exitNode);
+		return build(nodes, ids, keys, edgeCount, entry == null ? -1 : entry, exit == null ? -1 : exit);
+	}
+
+	/**
+	 * Builds an adjacency snapshot of the given nodes and edges with a virtual
+	 * master entry that precedes the given roots and a virtual master exit
+	 * that succeeds the given exits. The virtual nodes have ids but no
+	 * {@link Node}, so no master nodes need to be created in the graph
+	 * database. Edges with an endpoint outside of the given node set are
+	 * ignored.
+	 *
+	 * @param graphNodes
+	 * @param graphEdges
+	 * @param roots
+	 * @param exits
+	 * @return
+	 */
+	public static IndexedGraph build(AtlasSet<Node> graphNodes, AtlasSet<Edge> graphEdges, AtlasSet<Node> roots, AtlasSet<Node> exits) {
+		return build(graphNodes, (int) graphNodes.size(), graphEdges, roots, exits);
+	}
+
+	/**
+	 * Builds an adjacency snapshot like
+	 * {@link #build(AtlasSet, AtlasSet, AtlasSet, AtlasSet)}, assigning ids to
+	 * the nodes in the order of the given list, so the same list order always
+	 * yields the same ids.
+	 * 
+	 * @param orderedNodes
+	 * @param graphEdges
+	 * @param roots
+	 * @param exits
+	 * @return
+	 */
+	public static IndexedGraph build(List<Node> orderedNodes, AtlasSet<Edge> graphEdges, AtlasSet<Node> roots, AtlasSet<Node> exits) {
+		return build(orderedNodes, orderedNodes.size(), graphEdges, roots, exits);
+	}
+
+	private static IndexedGraph build(Iterable<Node> graphNodes, int size, AtlasSet<Edge> graphEdges, AtlasSet<Node> roots, AtlasSet<Node> exits) {
+		int entry = size;
+		int exit = size + 1;
+		Node[] nodes = new Node[size + 2];
+		Map<Node, Integer> ids = index(graphNodes, nodes);
+		long[] keys = new long[(int) (graphEdges.size() + roots.size() + exits.size())];
+		int edgeCount = encode(graphEdges, ids, keys);
+		for(Node root : roots){
+			Integer to = ids.get(root);
+			if(to != null){
+				keys[edgeCount++] = (((long) entry) << 32) | to;
+			}
+		}
+		for(Node leaf : exits){
+			Integer from = ids.get(leaf);
+			if(from != null){
+				keys[edgeCount++] = (((long) from) << 32) | exit;
+			}
+		}
+		return build(nodes, ids, keys, edgeCount, entry, exit);
+	}
+
+	/**
+	 * Assigns dense ids to the given nodes in iteration order
+	 */
+	private static Map<Node, Integer> index(Iterable<Node> graphNodes, Node[] nodes) {
+		Map<Node, Integer> ids = new HashMap<Node, Integer>(nodes.length * 2);
+		int nextId = 0;
+		for(Node node : graphNodes){
+			nodes[nextId] = node;
+			ids.put(node, nextId++);
+		}
+		return ids;
+	}
+
+	/**
+	 * Encodes each edge as (from << 32 | to), sorting the keys later groups
+	 * the edges by source and makes parallel edges adjacent so they can be
+	 * dropped.
+	 *
+	 * @return the number of keys written
+	 */
+	private static int encode(AtlasSet<Edge> graphEdges, Map<Node, Integer> ids, long[] keys) {
+		int edgeCount = 0;
+		for(Edge edge : graphEdges){
+			Integer from = ids.get(edge.from());
+			Integer to = ids.get(edge.to());
+			if(from != null && to != null){
+				keys[edgeCount++] = (((long) from) << 32) | to;
+			}
+		}
+		return edgeCount;
+	}
+
+	/**
+	 * Returns a snapshot of this graph with the given nodes and edges added,
+	 * for example the exceptional control flow of a function added to the
+	 * snapshot of its normal control flow. The nodes of this graph keep their
+	 * ids (as do the entry and exit) and new nodes are numbered after them, so
+	 * results computed on either snapshot can be compared by id. Only the
+	 * added edges are sorted, they are merged with the existing adjacency.
+	 * Must be called on a forward snapshot rather than a {@link #reverse()}
+	 * view.
+	 * 
+	 * @param extraNodes
+	 *            nodes to add, nodes already in this graph are ignored
+	 * @param extraEdges
+	 *            edges to add, edges with an endpoint outside of the combined
+	 *            node set are ignored
+	 * @param extraRoots
+	 *            nodes to add as successors of the entry, ignored if this
+	 *            graph has no entry
+	 * @param extraExits
+	 *            nodes to add as predecessors of the exit, ignored if this
+	 *            graph has no exit
+	 * @return
+	 */
+	public IndexedGraph extend(AtlasSet<Node> extraNodes, AtlasSet<Edge> extraEdges, AtlasSet<Node> extraRoots, AtlasSet<Node> extraExits) {
+		Map<Node, Integer> extendedIds = new HashMap<Node, Integer>(ids);
+		Node[] extendedNodes = Arrays.copyOf(nodes, (int) (nodes.length + extraNodes.size()));
+		int nextId = nodes.length;
+		for(Node node : extraNodes){
+			if(!extendedIds.containsKey(node)){
+				extendedNodes[nextId] = node;
+				extendedIds.put(node, nextId++);
+			}
+		}
+		extendedNodes = Arrays.copyOf(extendedNodes, nextId);
+		
+		long[] extraKeys = new long[(int) (extraEdges.size() + extraRoots.size() + extraExits.size())];
+		int extraCount = encode(extraEdges, extendedIds, extraKeys);
+		if(entry != -1){
+			for(Node root : extraRoots){
+				Integer to = extendedIds.get(root);
+				if(to != null){
+					extraKeys[extraCount++] = (((long) entry) << 32) | to;
+				}
+			}
+		}
+		if(exit != -1){
+			for(Node leaf : extraExits){
+				Integer from = extendedIds.get(leaf);
+				if(from != null){
+					extraKeys[extraCount++] = (((long) from) << 32) | exit;
+				}
+			}
+		}
+		Arrays.sort(extraKeys, 0, extraCount);
+		
+		// merge with the existing edges, which are already sorted by source
+		// and target
+		long[] keys = new long[successorTargets.length + extraCount];
+		int edgeCount = 0;
+		int next = 0;
+		for(int from=0; from<nodes.length; from++){
+			for(int i=successorOffsets[from]; i<successorOffsets[from + 1]; i++){
+				long key = (((long) from) << 32) | successorTargets[i];
+				while(next < extraCount && extraKeys[next] < key){
+					keys[edgeCount++] = extraKeys[next++];
+				}
+				keys[edgeCount++] = key;
+			}
+		}
+		while(next < extraCount){
+			keys[edgeCount++] = extraKeys[next++];
+		}
+		return fromSortedKeys(extendedNodes, extendedIds, keys, edgeCount, entry, exit);
+	}
+
+	private static IndexedGraph build(Node[] nodes, Map<Node, Integer> ids, long[] keys, int edgeCount, int entry, int exit) {
+		Arrays.sort(keys, 0, edgeCount);
+		return fromSortedKeys(nodes, ids, keys, edgeCount, entry, exit);
+	}
+
+	/**
+	 * Builds the adjacency arrays from edge keys sorted by (from, to)
+	 */
+	private static IndexedGraph fromSortedKeys(Node[] nodes, Map<Node, Integer> ids, long[] keys, int edgeCount, int entry, int exit) {
+		int size = nodes.length;
+		int uniqueEdgeCount = 0;
+
+		for(int i=0; i<edgeCount; i++){
+			if(i == 0 || keys[i] != keys[i-1]){
+				keys[uniqueEdgeCount++] = keys[i];
+			}
+		}
+
+		// forward edges are already in source order
+		int[] successorOffsets = new int[size + 1];
+		int[] successorTargets = new int[uniqueEdgeCount];
+		int[] predecessorOffsets = new int[size + 1];
+		for(int i=0; i<uniqueEdgeCount; i++){
+			int from = (int) (keys[i] >>> 32);
+			int to = (int) keys[i];
+			successorOffsets[from + 1]++;
+			predecessorOffsets[to + 1]++;
+			successorTargets[i] = to;
+		}
+		for(int v=0; v<size; v++){
+			successorOffsets[v + 1] += successorOffsets[v];
+			predecessorOffsets[v + 1] += predecessorOffsets[v];
+		}
+
+		// reverse edges are placed with a counting sort on the target
+		int[] predecessorTargets = new int[uniqueEdgeCount];
+		int[] cursor = Arrays.copyOf(predecessorOffsets, size);
+		for(int i=0; i<uniqueEdgeCount; i++){
+			int from = (int) (keys[i] >>> 32);
+			int to = (int) keys[i];
+			predecessorTargets[cursor[to]++] = from;
+		}
+
+		return new IndexedGraph(nodes, ids, successorOffsets, successorTargets, predecessorOffsets, predecessorTargets, entry, exit);
+	}
+
+	/**
+	 * Returns a view of this graph with every edge reversed. The view shares
+	 * the node ids and adjacency arrays of this graph (nothing is copied), its
+	 * entry is this graph's exit and reverse().reverse() is this graph.
+	 * @return
+	 */
+	public IndexedGraph reverse() {
+		return reverse;
+	}
+
+	/**
+	 * Returns the number of nodes in the graph
+	 * @return
+	 */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the number of distinct (from, to) edges in the graph
+	 * @return
+	 */
+	public int edgeCount() {
+		return successorTargets.length;
+	}
+
+	/**
+	 * Returns the id of the given node or -1 if the node is not in the graph
+	 * @param node
+	 * @return
+	 */
+	public int getId(Node node) {
+		Integer id = ids.get(node);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the node with the given id, null for a virtual entry or exit
+	 * @param id
+	 * @return
+	 */
+	public Node getNode(int id) {
+		return nodes[id];
+	}
+
+	/**
+	 * Returns the id of the master entry node or -1 if there is none
+	 * @return
+	 */
+	public int getEntry() {
+		return entry;
+	}
+
+	/**
+	 * Returns the id of the master exit node or -1 if there is none
+	 * @return
+	 */
+	public int getExit() {
+		return exit;
+	}
+
+	/**
+	 * Returns the number of successors of the node with the given id
+	 * @param id
+	 * @return
+	 */
+	public int getSuccessorCount(int id) {
+		return successorOffsets[id + 1] - successorOffsets[id];
+	}
+
+	/**
+	 * Returns the i'th successor of the node with the given id
+	 * @param id
+	 * @param i
+	 * @return
+	 */
+	public int getSuccessor(int id, int i) {
+		return successorTargets[successorOffsets[id] + i];
+	}
+
+	/**
+	 * Returns the number of predecessors of the node with the given id
+	 * @param id
+	 * @return
+	 */
+	public int getPredecessorCount(int id) {
+		return predecessorOffsets[id + 1] - predecessorOffsets[id];
+	}
+
+	/**
+	 * Returns the i'th predecessor of the node with the given id
+	 * @param id
+	 * @param i
+	 * @return
+	 */
+	public int getPredecessor(int id, int i) {
+		return predecessorTargets[predecessorOffsets[id] + i];
+	}
+
+	/**
+	 * Returns the successors of a given node as a new set
+	 * @param node
+	 * @return
+	 */
+	public AtlasSet<Node> getSuccessors(Node node) {
+		return toNodeSet(node, successorOffsets, successorTargets);
+	}
+
+	/**
+	 * Returns the predecessors of a given node as a new set
+	 * @param node
+	 * @return
+	 */
+	public AtlasSet<Node> getPredecessors(Node node) {
+		return toNodeSet(node, predecessorOffsets, predecessorTargets);
+	}
+
+	private AtlasSet<Node> toNodeSet(Node node, int[] offsets, int[] targets) {
+		AtlasSet<Node> result = new AtlasHashSet<Node>();
+		int id = getId(node);
+		if(id != -1){
+			for(int i=offsets[id]; i<offsets[id + 1]; i++){
+				result.add(nodes[targets[i]]);
+			}
+		}
+		return result;
+	}
+
+}
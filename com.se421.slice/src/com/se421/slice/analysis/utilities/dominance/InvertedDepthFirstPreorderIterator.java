@@ -30,14 +30,18 @@ public class InvertedDepthFirstPreorderIterator extends DepthFirstPreorderIterat
 
 	public InvertedDepthFirstPreorderIterator(UniqueEntryExitGraph graph, AtlasSet<Node> roots) {
 		super(graph, roots);
+		invert();
 	}
 	
 	public InvertedDepthFirstPreorderIterator(UniqueEntryExitGraph graph, Node root) {
 		super(graph, root);
+		invert();
 	}
 
-	@Override
-	protected AtlasSet<Node> getSuccessors(Node node) {
-		return graph.getPredecessors(node);
+	/**
+	 * Follows the predecessor lists instead of the successor lists
+	 */
+	private void invert() {
+		this.search = DepthFirstSearch.inverted(index);
 	}
 }
\ No newline at end of file
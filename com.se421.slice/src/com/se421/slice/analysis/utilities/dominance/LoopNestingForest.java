@@ -0,0 +1,497 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+import java.util.Arrays;
+
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+
+/**
+ * The loop nesting forest of a graph, computed with Havlak's algorithm (as
+ * corrected by Ramalingam) over the graph a {@link DominatorTree} was built
+ * on.
+ *
+ * Every loop is identified by its header. For each node the forest records
+ * the innermost loop containing it and for each header the loop enclosing it,
+ * along with loop depths and the kind of each loop. A loop is irreducible when
+ * it can be entered other than through its header, that is when some edge into
+ * the loop comes from outside the header's depth-first subtree or when the
+ * header does not dominate the source of one of its back edges.
+ *
+ * All results are kept in int arrays indexed by node id. Loops are numbered in
+ * preorder of the forest so that loop membership is an interval test and the
+ * body of a loop is a contiguous range of one array.
+ */
+public class LoopNestingForest {
+
+	/**
+	 * The kinds of loops
+	 */
+	public static enum LoopKind {
+		/**
+		 * The node is not a loop header
+		 */
+		NONE,
+
+		/**
+		 * The header's only back edge is a self loop
+		 */
+		SELF,
+
+		/**
+		 * A natural loop, only entered through its header
+		 */
+		REDUCIBLE,
+
+		/**
+		 * A loop with more than one entry
+		 */
+		IRREDUCIBLE
+	}
+
+	private static final LoopKind[] KINDS = LoopKind.values();
+
+	/**
+	 * The graph to operate on
+	 */
+	private final IndexedGraph index;
+
+	/**
+	 * For a header the header of the enclosing loop, for any other node the
+	 * header of the innermost loop containing it, -1 if there is none
+	 */
+	private final int[] header;
+
+	/**
+	 * LoopKind ordinal by node id
+	 */
+	private final byte[] kind;
+
+	/**
+	 * Number of loops containing each node, a header is in its own loop
+	 */
+	private final int[] loopDepth;
+
+	/**
+	 * Preorder number of each header in the forest and the largest number in
+	 * its subtree, -1 for nodes that are not headers
+	 */
+	private final int[] loopNumber;
+	private final int[] loopLast;
+
+	/**
+	 * Headers by loop number
+	 */
+	private final int[] headers;
+
+	/**
+	 * Nodes grouped by the loop number of their innermost loop, the body of
+	 * loop number l is members[memberOffsets[l]] to
+	 * members[memberOffsets[loopLast(l)+1]-1]
+	 */
+	private final int[] memberOffsets;
+	private final int[] members;
+
+	/**
+	 * Computes the loop nesting forest of the graph of the given dominator tree
+	 *
+	 * @param dominatorTree
+	 *            a (forward) dominator tree
+	 */
+	public LoopNestingForest(DominatorTree dominatorTree) {
+		this.index = dominatorTree.getIndexedGraph();
+		int size = index.size();
+		header = new int[size];
+		kind = new byte[size];
+		loopDepth = new int[size];
+		loopNumber = new int[size];
+		loopLast = new int[size];
+		Arrays.fill(header, -1);
+		Arrays.fill(loopNumber, -1);
+		Arrays.fill(loopLast, -1);
+
+		// depth-first search numbering nodes in preorder, last[v] is the
+		// largest number in v's depth-first subtree
+		int[] number = new int[size];
+		int[] vertex = new int[size];
+		int[] parents = new int[size];
+		int[] last = new int[size];
+		Arrays.fill(number, -1);
+		int count = new DepthFirstSearch(index).search(new int[]{ index.getEntry() }, vertex, null, parents);
+		for(int w=0; w<count; w++){
+			number[vertex[w]] = w;
+			last[w] = w;
+		}
+		for(int w=count-1; w>0; w--){
+			int p = number[parents[w]];
+			last[p] = Math.max(last[p], last[w]);
+		}
+
+		// classify the predecessors of every reachable node, by preorder number
+		int[][] backPredecessors = new int[count][];
+		int[] backCount = new int[count];
+		int[][] otherPredecessors = new int[count][];
+		int[] otherCount = new int[count];
+		for(int w=0; w<count; w++){
+			int id = vertex[w];
+			backPredecessors[w] = new int[0];
+			otherPredecessors[w] = new int[0];
+			for(int i=index.predecessorOffsets[id]; i<index.predecessorOffsets[id + 1]; i++){
+				int v = number[index.predecessorTargets[i]];
+				if(v == -1){
+					continue;
+				}
+				if(isAncestor(w, v, last)){
+					backPredecessors[w] = append(backPredecessors[w], backCount[w]++, v);
+				} else {
+					otherPredecessors[w] = append(otherPredecessors[w], otherCount[w]++, v);
+				}
+			}
+		}
+
+		// Havlak: process nodes in reverse preorder, collapsing each loop body
+		// into its header with union-find
+		int[] unionFind = new int[count];
+		int[] headerNumber = new int[count];
+		for(int w=0; w<count; w++){
+			unionFind[w] = w;
+			headerNumber[w] = -1;
+		}
+		int[] body = new int[count];
+		int[] worklist = new int[count];
+		boolean[] inBody = new boolean[count];
+		for(int w=count-1; w>=0; w--){
+			int bodyCount = 0;
+			boolean selfLoop = false;
+			boolean irreducible = false;
+			for(int i=0; i<backCount[w]; i++){
+				int v = backPredecessors[w][i];
+				if(v == w){
+					selfLoop = true;
+				} else {
+					if(!dominatorTree.dominates(vertex[w], vertex[v])){
+						irreducible = true;
+					}
+					int x = find(v, unionFind);
+					if(!inBody[x]){
+						inBody[x] = true;
+						body[bodyCount++] = x;
+					}
+				}
+			}
+			System.arraycopy(body, 0, worklist, 0, bodyCount);
+			int top = bodyCount;
+			while(top > 0){
+				int x = worklist[--top];
+				for(int i=0; i<otherCount[x]; i++){
+					int y = find(otherPredecessors[x][i], unionFind);
+					if(!isAncestor(w, y, last)){
+						// an entry into the loop that bypasses the header
+						irreducible = true;
+						otherPredecessors[w] = append(otherPredecessors[w], otherCount[w]++, y);
+					} else if(y != w && !inBody[y]){
+						inBody[y] = true;
+						body[bodyCount++] = y;
+						worklist[top++] = y;
+					}
+				}
+			}
+			for(int i=0; i<bodyCount; i++){
+				int x = body[i];
+				inBody[x] = false;
+				headerNumber[x] = w;
+				unionFind[x] = w;
+			}
+			LoopKind loopKind = LoopKind.NONE;
+			if(irreducible){
+				loopKind = LoopKind.IRREDUCIBLE;
+			} else if(bodyCount > 0){
+				loopKind = LoopKind.REDUCIBLE;
+			} else if(selfLoop){
+				loopKind = LoopKind.SELF;
+			}
+			kind[vertex[w]] = (byte) loopKind.ordinal();
+		}
+
+		// translate to node ids, parents precede children in preorder so loop
+		// depths can be computed in one pass
+		int loopCount = 0;
+		for(int w=0; w<count; w++){
+			int id = vertex[w];
+			header[id] = headerNumber[w] == -1 ? -1 : vertex[headerNumber[w]];
+			int enclosing = header[id] == -1 ? 0 : loopDepth[header[id]];
+			if(kind[id] != LoopKind.NONE.ordinal()){
+				loopDepth[id] = enclosing + 1;
+				loopCount++;
+			} else {
+				loopDepth[id] = enclosing;
+			}
+		}
+
+		// number the loops in preorder of the forest
+		headers = new int[loopCount];
+		int[] childOffsets = new int[size + 1];
+		int[] children = new int[loopCount];
+		int rootCount = 0;
+		for(int w=0; w<count; w++){
+			int id = vertex[w];
+			if(isLoopHeader(id)){
+				if(header[id] == -1){
+					rootCount++;
+				} else {
+					childOffsets[header[id] + 1]++;
+				}
+			}
+		}
+		for(int v=0; v<size; v++){
+			childOffsets[v + 1] += childOffsets[v];
+		}
+		int[] roots = new int[rootCount];
+		int[] cursor = Arrays.copyOf(childOffsets, size);
+		rootCount = 0;
+		for(int w=0; w<count; w++){
+			int id = vertex[w];
+			if(isLoopHeader(id)){
+				if(header[id] == -1){
+					roots[rootCount++] = id;
+				} else {
+					children[cursor[header[id]]++] = id;
+				}
+			}
+		}
+		int next = 0;
+		int[] stack = new int[loopCount];
+		for(int root : roots){
+			int top = 0;
+			stack[top++] = root;
+			while(top > 0){
+				int h = stack[--top];
+				if(loopNumber[h] == -1){
+					loopNumber[h] = next;
+					headers[next++] = h;
+					stack[top++] = h; // revisit to close the interval
+					for(int c=childOffsets[h]; c<childOffsets[h + 1]; c++){
+						stack[top++] = children[c];
+					}
+				} else {
+					loopLast[h] = next - 1;
+				}
+			}
+		}
+
+		// group nodes by their innermost loop
+		memberOffsets = new int[loopCount + 1];
+		int memberCount = 0;
+		for(int v=0; v<size; v++){
+			int innermost = getInnermostLoop(v);
+			if(innermost != -1){
+				memberOffsets[loopNumber[innermost] + 1]++;
+				memberCount++;
+			}
+		}
+		for(int l=0; l<loopCount; l++){
+			memberOffsets[l + 1] += memberOffsets[l];
+		}
+		members = new int[memberCount];
+		int[] memberCursor = Arrays.copyOf(memberOffsets, loopCount);
+		for(int v=0; v<size; v++){
+			int innermost = getInnermostLoop(v);
+			if(innermost != -1){
+				members[memberCursor[loopNumber[innermost]]++] = v;
+			}
+		}
+	}
+
+	/**
+	 * Returns the graph the forest was computed on
+	 *
+	 * @return
+	 */
+	public IndexedGraph getIndexedGraph() {
+		return index;
+	}
+
+	/**
+	 * Returns the number of loops
+	 *
+	 * @return
+	 */
+	public int getLoopCount() {
+		return headers.length;
+	}
+
+	/**
+	 * Returns the ids of the loop headers, outer loops before the loops they
+	 * contain
+	 *
+	 * @return
+	 */
+	public int[] getLoopHeaders() {
+		return Arrays.copyOf(headers, headers.length);
+	}
+
+	/**
+	 * Returns true if the node with the given id is a loop header
+	 *
+	 * @param id
+	 * @return
+	 */
+	public boolean isLoopHeader(int id) {
+		return kind[id] != LoopKind.NONE.ordinal();
+	}
+
+	/**
+	 * Returns the kind of loop headed by the node with the given id
+	 *
+	 * @param id
+	 * @return
+	 */
+	public LoopKind getLoopKind(int id) {
+		return KINDS[kind[id]];
+	}
+
+	/**
+	 * Returns the header of the innermost loop containing the node with the
+	 * given id (the node itself if it is a header), -1 if it is in no loop
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int getInnermostLoop(int id) {
+		return isLoopHeader(id) ? id : header[id];
+	}
+
+	/**
+	 * Returns the header of the loop enclosing the loop with the given header,
+	 * -1 for outermost loops
+	 *
+	 * @param header
+	 * @return
+	 */
+	public int getParentLoop(int header) {
+		return this.header[header];
+	}
+
+	/**
+	 * Returns the number of loops containing the node with the given id
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int getLoopDepth(int id) {
+		return loopDepth[id];
+	}
+
+	/**
+	 * Returns true if the node with the given id is in the loop with the given
+	 * header, including its nested loops. Runs in constant time.
+	 *
+	 * @param id
+	 * @param header
+	 * @return
+	 */
+	public boolean isInLoop(int id, int header) {
+		int innermost = getInnermostLoop(id);
+		if(innermost == -1 || loopNumber[header] == -1){
+			return false;
+		}
+		int l = loopNumber[innermost];
+		return loopNumber[header] <= l && l <= loopLast[header];
+	}
+
+	/**
+	 * Returns the ids of the nodes in the loop with the given header,
+	 * including its nested loops
+	 *
+	 * @param header
+	 * @return
+	 */
+	public int[] getLoopBody(int header) {
+		if(loopNumber[header] == -1){
+			return new int[0];
+		}
+		return Arrays.copyOfRange(members, memberOffsets[loopNumber[header]], memberOffsets[loopLast[header] + 1]);
+	}
+
+	/**
+	 * Returns the header of the innermost loop containing the given node, null
+	 * if it is in no loop or not in the graph
+	 *
+	 * @param node
+	 * @return
+	 */
+	public Node getInnermostLoop(Node node) {
+		int id = index.getId(node);
+		if(id == -1 || getInnermostLoop(id) == -1){
+			return null;
+		}
+		return index.getNode(getInnermostLoop(id));
+	}
+
+	/**
+	 * Returns the number of loops containing the given node
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int getLoopDepth(Node node) {
+		int id = index.getId(node);
+		return id == -1 ? 0 : loopDepth[id];
+	}
+
+	/**
+	 * Returns true if the given node is in the loop with the given header
+	 *
+	 * @param node
+	 * @param header
+	 * @return
+	 */
+	public boolean isInLoop(Node node, Node header) {
+		int id = index.getId(node);
+		int headerId = index.getId(header);
+		return id != -1 && headerId != -1 && isInLoop(id, headerId);
+	}
+
+	/**
+	 * Returns the nodes in the loop with the given header
+	 *
+	 * @param header
+	 * @return
+	 */
+	public AtlasSet<Node> getLoopBody(Node header) {
+		AtlasSet<Node> result = new AtlasHashSet<Node>();
+		int id = index.getId(header);
+		if(id != -1){
+			for(int member : getLoopBody(id)){
+				result.add(index.getNode(member));
+			}
+		}
+		return result;
+	}
+
+	private static boolean isAncestor(int w, int v, int[] last) {
+		return w <= v && v <= last[w];
+	}
+
+	private static int find(int x, int[] unionFind) {
+		int root = x;
+		while(unionFind[root] != root){
+			root = unionFind[root];
+		}
+		while(unionFind[x] != root){
+			int next = unionFind[x];
+			unionFind[x] = root;
+			x = next;
+		}
+		return root;
+	}
+
+	private static int[] append(int[] array, int index, int value) {
+		if(index == array.length){
+			array = Arrays.copyOf(array, Math.max(4, index * 2));
+		}
+		array[index] = value;
+		return array;
+	}
+
+}
@@ -0,0 +1,279 @@
+package com.se421.slice.analysis.utilities.dominance;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Graph;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.query.Query;
+import com.ensoftcorp.atlas.core.script.Common;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.utilities.CommonQueries;
+
+/**
+ * An in-memory registry of the master entry and exit nodes of each function's
+ * {@link UniqueEntryExitControlFlowGraph} and of the edges from the master
+ * entry to the roots and from the exits to the master exit.
+ *
+ * The registry is populated once per index by {@link #index()} and records
+ * every master node and edge it creates, so constructing a unique entry/exit
+ * control flow graph looks up its master nodes and edges in constant time
+ * instead of querying the universe for them. A function missing from the
+ * registry (for example when the codemap stage did not run) is looked up in
+ * the graph once on first use. The registry is safe to use from multiple
+ * threads.
+ */
+public class MasterNodeRegistry {
+
+	/**
+	 * Master nodes by function
+	 */
+	private static final ConcurrentHashMap<Node, MasterNodes> registry = new ConcurrentHashMap<Node, MasterNodes>();
+
+	/**
+	 * True once every existing master node has been registered, functions
+	 * registered after that cannot have master nodes to look up
+	 */
+	private static volatile boolean indexed = false;
+
+	private MasterNodeRegistry() {}
+
+	/**
+	 * Discards every registered function
+	 */
+	public static void clear() {
+		indexed = false;
+		registry.clear();
+	}
+
+	/**
+	 * Registers the master nodes and edges that exist in the graph, replacing
+	 * the current contents of the registry
+	 */
+	public static void index() {
+		indexed = false;
+		registry.clear();
+		for(Node masterEntry : Query.universe().nodes(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Entry).eval().nodes()){
+			Node function = getFunction(masterEntry, true);
+			if(function != null){
+				getMasterNodes(function).setEntry(masterEntry);
+			}
+		}
+		for(Node masterExit : Query.universe().nodes(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Exit).eval().nodes()){
+			Node function = getFunction(masterExit, false);
+			if(function != null){
+				getMasterNodes(function).setExit(masterExit);
+			}
+		}
+		for(MasterNodes masterNodes : registry.values()){
+			masterNodes.searched = true;
+		}
+		indexed = true;
+	}
+
+	/**
+	 * Returns the registered master nodes of the given function, looking
+	 * them up in the graph if the function is not registered yet
+	 *
+	 * @param function
+	 * @return
+	 */
+	static MasterNodes getMasterNodes(Node function) {
+		MasterNodes masterNodes = registry.get(function);
+		if(masterNodes == null){
+			masterNodes = new MasterNodes(function, indexed);
+			MasterNodes previous = registry.putIfAbsent(function, masterNodes);
+			if(previous != null){
+				masterNodes = previous;
+			}
+		}
+		return masterNodes;
+	}
+
+	/**
+	 * Returns the master entry node of the given function, creating it with a
+	 * containment edge from the function if it does not exist
+	 *
+	 * @param function
+	 * @return
+	 */
+	public static Node getMasterEntry(Node function) {
+		return getMasterNodes(function).getOrCreateEntry(true);
+	}
+
+	/**
+	 * Returns the master exit node of the given function, creating it with a
+	 * containment edge from the function if it does not exist
+	 *
+	 * @param function
+	 * @return
+	 */
+	public static Node getMasterExit(Node function) {
+		return getMasterNodes(function).getOrCreateExit(true);
+	}
+
+	/**
+	 * Returns the function of a master node, its container or else the
+	 * function containing the control flow nodes it is connected to
+	 */
+	private static Node getFunction(Node masterNode, boolean entry) {
+		for(Edge containsEdge : masterNode.in(XCSG.Contains)){
+			return containsEdge.from();
+		}
+		for(Edge edge : entry ? masterNode.out(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Edge) : masterNode.in(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Edge)){
+			Node function = CommonQueries.getContainingFunction(entry ? edge.to() : edge.from());
+			if(function != null){
+				return function;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The master entry and exit of one function with their edges by root and
+	 * by exit
+	 */
+	static class MasterNodes {
+		private final Node function;
+		private Node masterEntry = null;
+		private Node masterExit = null;
+		private volatile boolean searched;
+		private final Map<Node, Edge> entryEdges = new HashMap<Node, Edge>();
+		private final Map<Node, Edge> exitEdges = new HashMap<Node, Edge>();
+
+		private MasterNodes(Node function, boolean searched) {
+			this.function = function;
+			this.searched = searched;
+		}
+
+		private synchronized void setEntry(Node masterEntry) {
+			this.masterEntry = masterEntry;
+			entryEdges.clear();
+			for(Edge edge : masterEntry.out(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Edge)){
+				entryEdges.put(edge.to(), edge);
+			}
+		}
+
+		private synchronized void setExit(Node masterExit) {
+			this.masterExit = masterExit;
+			exitEdges.clear();
+			for(Edge edge : masterExit.in(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Edge)){
+				exitEdges.put(edge.from(), edge);
+			}
+		}
+
+		/**
+		 * Looks up master nodes created before the function was registered,
+		 * only done once per function
+		 */
+		private void search() {
+			if(searched){
+				return;
+			}
+			searched = true;
+			if(masterEntry == null){
+				Node node = Common.toQ(function).children().nodes(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Entry).eval().nodes().one();
+				if(node == null){
+					node = Query.universe().predecessors(CommonQueries.cfg(function)).nodes(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Entry).eval().nodes().one();
+				}
+				if(node != null){
+					setEntry(node);
+				}
+			}
+			if(masterExit == null){
+				Node node = Common.toQ(function).children().nodes(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Exit).eval().nodes().one();
+				if(node == null){
+					node = Query.universe().successors(CommonQueries.cfg(function)).nodes(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Exit).eval().nodes().one();
+				}
+				if(node != null){
+					setExit(node);
+				}
+			}
+		}
+
+		/**
+		 * Returns the master entry node, creating it if it does not exist
+		 *
+		 * @param addContains
+		 *            if true the function is made to contain the node
+		 * @return
+		 */
+		synchronized Node getOrCreateEntry(boolean addContains) {
+			search();
+			if(masterEntry == null){
+				masterEntry = createMasterNode(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Entry, UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Entry_Name, addContains);
+			}
+			return masterEntry;
+		}
+
+		/**
+		 * Returns the master exit node, creating it if it does not exist
+		 *
+		 * @param addContains
+		 *            if true the function is made to contain the node
+		 * @return
+		 */
+		synchronized Node getOrCreateExit(boolean addContains) {
+			search();
+			if(masterExit == null){
+				masterExit = createMasterNode(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Exit, UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Master_Exit_Name, addContains);
+			}
+			return masterExit;
+		}
+
+		/**
+		 * Returns the edge from the master entry to the given root, creating
+		 * it if it does not exist
+		 *
+		 * @param root
+		 * @return
+		 */
+		synchronized Edge getOrCreateEntryEdge(Node root) {
+			search();
+			Edge edge = entryEdges.get(root);
+			if(edge == null){
+				edge = createEdge(getOrCreateEntry(false), root);
+				entryEdges.put(root, edge);
+			}
+			return edge;
+		}
+
+		/**
+		 * Returns the edge from the given exit to the master exit, creating it
+		 * if it does not exist
+		 *
+		 * @param exit
+		 * @return
+		 */
+		synchronized Edge getOrCreateExitEdge(Node exit) {
+			search();
+			Edge edge = exitEdges.get(exit);
+			if(edge == null){
+				edge = createEdge(exit, getOrCreateExit(false));
+				exitEdges.put(exit, edge);
+			}
+			return edge;
+		}
+
+		private Node createMasterNode(String tag, String name, boolean addContains) {
+			Node masterNode = Graph.U.createNode();
+			masterNode.attr().put(XCSG.name, name);
+			masterNode.tag(tag);
+			if(addContains){
+				Edge containsEdge = Graph.U.createEdge(function, masterNode);
+				containsEdge.tag(XCSG.Contains);
+			}
+			return masterNode;
+		}
+
+		private static Edge createEdge(Node from, Node to) {
+			Edge edge = Graph.U.createEdge(from, to);
+			edge.tag(XCSG.Edge);
+			edge.tag(UniqueEntryExitControlFlowGraph.UniqueEntryExitCFG_Edge);
+			return edge;
+		}
+	}
+
+}
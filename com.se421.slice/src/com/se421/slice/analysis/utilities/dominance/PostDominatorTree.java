@@ -1,400 +1,89 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one or more
- *  contributor license agreements.  See the NOTICE file distributed with
- *  this work for additional information regarding copyright ownership.
- *  The ASF licenses this file to You under the Apache License, Version 2.0
- *  (the "License"); you may not use this file except in compliance with
- *  the License.  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing, software
- *  distributed under the License is distributed on an "AS IS" BASIS,
- *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- *  See the License for the specific language governing permissions and
- *  limitations under the License.
- *
- */
 package com.se421.slice.analysis.utilities.dominance;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Stack;
-
 import com.ensoftcorp.atlas.core.db.graph.Node;
-import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
 
 /**
- * An implementation of the O(n log n) Lengauer-Tarjan algorithm for building
- * the <a href="http://en.wikipedia.org/wiki/Dominator_%28graph_theory%29">dominator
- * tree</a> of a {@link ControlFlowGraph cfg}.
+ * The post-dominator tree of a {@link UniqueEntryExitGraph}, computed as the
+ * dominator tree of the reversed graph rooted at the master exit.
  * 
- * Adapted from: https://svn.apache.org/repos/asf/flex/falcon/trunk/compiler/src/org/apache/flex/abc/graph/algorithms/DominatorTree.java
- * NOTE: This is an older revision of com.ensoftcorp.open.commons.algorithms.internal.DominatorTree, which specifically dealt with computing post-dominance relationships
- * TODO: CAFEFULLY! Merge this code with the DominatorTree code...BE VERY CAFEFUL YOU COULD BREAK A LOT OF THINGS!
+ * The reversed graph is a view of the graph's {@link IndexedGraph} that shares
+ * its adjacency arrays, so no copy of the graph is made. Immediate
+ * post-dominators are reported by {@link #getIdoms()} and post-dominance
+ * frontiers by {@link #getDominanceFrontiers()}.
  */
-public class PostDominatorTree {
-	/**
-	 * Control flow graph for dominance computation
-	 */
-	private UniqueEntryExitGraph graph;
-
-	/**
-	 * Semidominator numbers by block.
-	 */
-	private Map<Node, Integer> semi = new HashMap<Node, Integer>();
-
-	/**
-	 * Parents by block.
-	 */
-	private Map<Node, Node> parent = new HashMap<Node, Node>();
-
-	/**
-	 * Predecessors by block.
-	 */
-	private PostDominatorTree.Multimap<Node> pred = new PostDominatorTree.Multimap<Node>();
-
-	/**
-	 * Blocks in DFS order; used to look up a block from its semidominator
-	 * numbering.
-	 */
-	private ArrayList<Node> vertex = new ArrayList<Node>();
-
-	/**
-	 * Blocks by semidominator block.
-	 */
-	private PostDominatorTree.Multimap<Node> bucket = new PostDominatorTree.Multimap<Node>();
-
-	/**
-	 * idominator map, built iteratively.
-	 */
-	private Map<Node, Node> idom = new HashMap<Node, Node>();
+public class PostDominatorTree extends DominatorTree {
 
 	/**
-	 * Dominance frontiers of this dominator tree, built on demand.
-	 */
-	private PostDominatorTree.Multimap<Node> dominanceFrontiers = null;
-
-	/**
-	 * Dominator tree, built on demand from the idominator map.
-	 */
-	private PostDominatorTree.Multimap<Node> dominatorTree = null;
-
-	/**
-	 * Auxiliary data structure used by the O(m log n) eval/link implementation:
-	 * ancestor relationships in the forest (the processed tree as it's built
-	 * back up).
-	 */
-	private Map<Node, Node> ancestor = new HashMap<Node, Node>();
-
-	/**
-	 * Auxiliary data structure used by the O(m log n) eval/link implementation:
-	 * node with least semidominator seen during traversal of a path from node
-	 * to subtree root in the forest.
-	 */
-	private Map<Node, Node> label = new HashMap<Node, Node>();
-
-	/**
-	 * A topological traversal of the dominator tree, built on demand.
-	 */
-	private LinkedList<Node> topologicalTraversalImpl = null;
-
-	/**
-	 * Construct a DominatorTree from a root.
+	 * Construct a PostDominatorTree rooted at the graph's exit.
 	 * 
-	 * @param root
-	 *            the root of the graph.
+	 * @param graph
+	 *            the graph to compute post-dominators of
 	 */
 	public PostDominatorTree(UniqueEntryExitGraph graph) {
-		this.graph = graph;
-		this.dfs(this.graph.getExitNode());
-		this.computeDominators();
-	}
-
-	/**
-	 * Returns the map of immediate dominators.
-	 * 
-	 * @return the map from each block to its immediate dominator (if it has
-	 *         one).
-	 */
-	public Map<Node, Node> getIdoms() {
-		return this.idom;
-	}
-    
-	/**
-	 * Returns the map of semi-dominators
-	 */
-	public Map<Node, Integer> getSdoms() {
-		return this.semi;
-	}
-	
-	/**
-	 * Compute and/or fetch the dominator tree as a Multimap.
-	 * 
-	 * @return the dominator tree.
-	 */
-	public PostDominatorTree.Multimap<Node> getDominatorTree() {
-		if (this.dominatorTree == null) {
-			this.dominatorTree = new PostDominatorTree.Multimap<Node>();
-			for (Node node : this.idom.keySet()){
-				dominatorTree.get(this.idom.get(node)).add(node);
-			}
-		}
-		return this.dominatorTree;
+		this(graph, DominatorAlgorithm.AUTOMATIC);
 	}
 
 	/**
-	 * Compute and/or fetch the dominance frontiers as a Multimap.
+	 * Construct a PostDominatorTree rooted at the graph's exit using the given
+	 * algorithm.
 	 * 
-	 * @return a Multimap where the set of nodes mapped to each key node is the
-	 *         set of nodes in the key node's dominance frontier.
+	 * @param graph
+	 *            the graph to compute post-dominators of
+	 * @param algorithm
+	 *            the algorithm used to compute the immediate post-dominators
 	 */
-	public PostDominatorTree.Multimap<Node> getDominanceFrontiers() {
-		if (this.dominanceFrontiers == null) {
-			this.dominanceFrontiers = new PostDominatorTree.Multimap<Node>();
-
-			getDominatorTree(); // touch the dominator tree
-
-			for (Node x : reverseTopologicalTraversal()) {
-				Set<Node> dfx = this.dominanceFrontiers.get(x);
-
-				// Compute DF(local)
-				for (Node y : getSuccessors(x)){
-					if (idom.get(y) != x){
-						dfx.add(y);
-					}
-				}
-
-				// Compute DF(up)
-				for (Node z : this.dominatorTree.get(x)){
-					for (Node y : this.dominanceFrontiers.get(z)){
-						if (idom.get(y) != x){
-							dfx.add(y);
-						}
-					}
-				}
-			}
-		}
-
-		return this.dominanceFrontiers;
+	public PostDominatorTree(UniqueEntryExitGraph graph, DominatorAlgorithm algorithm) {
+		super(graph.getIndexedGraph().reverse(), new AtlasHashSet<Node>(), algorithm);
 	}
 
 	/**
-	 * Create and/or fetch a topological traversal of the dominator tree, such
-	 * that for every node, idom(node) appears before node.
+	 * Construct a PostDominatorTree of an indexed graph, rooted at the graph's
+	 * exit.
 	 * 
-	 * @return the topological traversal of the dominator tree, as an immutable
-	 *         List.
+	 * @param index
+	 *            the graph in its forward direction
 	 */
-	public List<Node> topologicalTraversal() {
-		return Collections.unmodifiableList(getToplogicalTraversalImplementation());
+	public PostDominatorTree(IndexedGraph index) {
+		this(index, DominatorAlgorithm.AUTOMATIC);
 	}
 
 	/**
-	 * Create and/or fetch a reverse topological traversal of the dominator
-	 * tree, such that for every node, node appears before idom(node).
+	 * Construct a PostDominatorTree of an indexed graph, rooted at the graph's
+	 * exit, using the given algorithm.
 	 * 
-	 * @return a reverse topological traversal of the dominator tree, as an
-	 *         immutable List.
+	 * @param index
+	 *            the graph in its forward direction
+	 * @param algorithm
+	 *            the algorithm used to compute the immediate post-dominators
 	 */
-	public Iterable<Node> reverseTopologicalTraversal() {
-		return new Iterable<Node>() {
-			@Override
-			public Iterator<Node> iterator() {
-				return getToplogicalTraversalImplementation().descendingIterator();
-			}
-		};
+	public PostDominatorTree(IndexedGraph index, DominatorAlgorithm algorithm) {
+		super(index.reverse(), new AtlasHashSet<Node>(), algorithm);
 	}
 
 	/**
-	 * Depth-first search the graph and initialize data structures.
+	 * Returns true if a post-dominates b, every path from b to the exit passes
+	 * through a. Every node post-dominates itself and nodes that cannot reach
+	 * the exit neither post-dominate nor are post-dominated. Answered in
+	 * constant time, equivalent to {@link #dominates(Node, Node)}.
 	 * 
-	 * @param roots
-	 *            the root(s) of the flowgraph. One of these is the start block,
-	 *            the others are exception handlers.
-	 */
-	private void dfs(Node entryNode) {
-		Iterator<Node> it = new InvertedDepthFirstPreorderIterator(this.graph, entryNode);
-
-		while (it.hasNext()) {
-			Node node = it.next();
-
-			if (!semi.containsKey(node)) {
-				vertex.add(node);
-
-				// Initial assumption: the node's semidominator is itself.
-				semi.put(node, semi.size());
-				label.put(node, node);
-
-				for (Node child : getSuccessors(node)) {
-					pred.get(child).add(node);
-					if (!semi.containsKey(child)) {
-						parent.put(child, node);
-					}
-				}
-			}
-		}
-	}
-
-	/**
-	 * Steps 2, 3, and 4 of Lengauer-Tarjan.
+	 * @param a
+	 * @param b
+	 * @return
 	 */
-	private void computeDominators() {
-		int lastSemiNumber = semi.size() - 1;
-
-		for (int i = lastSemiNumber; i > 0; i--) {
-			Node w = vertex.get(i);
-			Node p = this.parent.get(w);
-
-			// step 2: compute semidominators
-			// for each v in pred(w)...
-			int semidominator = semi.get(w);
-			for (Node v : pred.get(w)){
-				semidominator = Math.min(semidominator, semi.get(eval(v)));
-			}
-
-			semi.put(w, semidominator);
-			bucket.get(vertex.get(semidominator)).add(w);
-
-			// Link w into the forest via its parent, p
-			link(p, w);
-
-			// step 3: implicitly compute idominators
-			// for each v in bucket(parent(w)) ...
-			for (Node v : bucket.get(p)) {
-				Node u = eval(v);
-				if (semi.get(u) < semi.get(v)){
-					idom.put(v, u);
-				} else {
-					idom.put(v, p);
-				}
-			}
-
-			bucket.get(p).clear();
-		}
-
-		// step 4: explicitly compute idominators
-		for (int i = 1; i <= lastSemiNumber; i++) {
-			Node w = vertex.get(i);
-			if (idom.get(w) != vertex.get((semi.get(w)))){
-				idom.put(w, idom.get(idom.get(w)));
-			}
-		}
+	public boolean postDominates(Node a, Node b) {
+		return dominates(a, b);
 	}
 
 	/**
-	 * Extract the node with the least-numbered semidominator in the (processed)
-	 * ancestors of the given node.
+	 * Returns true if a post-dominates b and a is not b.
 	 * 
-	 * @param v
-	 *            - the node of interest.
-	 * @return "If v is the root of a tree in the forest, return v. Otherwise,
-	 *         let r be the root of the tree which contains v. Return any vertex
-	 *         u != r of minimum semi(u) on the path r-*v."
+	 * @param a
+	 * @param b
+	 * @return
 	 */
-	private Node eval(Node v) {
-		// This version of Lengauer-Tarjan implements
-		// eval(v) as a path-compression procedure.
-		compress(v);
-		return label.get(v);
+	public boolean strictlyPostDominates(Node a, Node b) {
+		return strictlyDominates(a, b);
 	}
 
-	/**
-	 * Traverse ancestor pointers back to a subtree root, then propagate the
-	 * least semidominator seen along this path through the "label" map.
-	 */
-	private void compress(Node v) {
-		Stack<Node> worklist = new Stack<Node>();
-		worklist.add(v);
-
-		Node a = this.ancestor.get(v);
-
-		// Traverse back to the subtree root.
-		while (this.ancestor.containsKey(a)) {
-			worklist.push(a);
-			a = this.ancestor.get(a);
-		}
-
-		// Propagate semidominator information forward.
-		Node ancestor = worklist.pop();
-		int leastSemi = semi.get(label.get(ancestor));
-
-		while (!worklist.empty()) {
-			Node descendent = worklist.pop();
-			int currentSemi = semi.get(label.get(descendent));
-
-			if (currentSemi > leastSemi){
-				label.put(descendent, label.get(ancestor));
-			} else {
-				leastSemi = currentSemi;
-			}
-
-			// Prepare to process the next iteration.
-			ancestor = descendent;
-		}
-	}
-
-	/**
-	 * Simple version of link(parent,child) simply links the child into the
-	 * parent's forest, with no attempt to balance the subtrees or otherwise
-	 * optimize searching.
-	 */
-	private void link(Node parent, Node child) {
-		this.ancestor.put(child, parent);
-	}
-
-	/**
-	 * Multimap maps a key to a set of values.
-	 */
-	@SuppressWarnings("serial")
-	public static class Multimap<T> extends HashMap<T, Set<T>> {
-		/**
-		 * Fetch the set for a given key, creating it if necessary.
-		 * 
-		 * @param key
-		 *            - the key.
-		 * @return the set of values mapped to the key.
-		 */
-		@SuppressWarnings("unchecked")
-		@Override
-		public Set<T> get(Object key) {
-			if (!this.containsKey(key))
-				this.put((T) key, new HashSet<T>());
-
-			return super.get(key);
-		}
-	}
-
-	/**
-	 * Create/fetch the topological traversal of the dominator tree.
-	 * 
-	 * @return {@link this.topologicalTraversal}, the traversal of the dominator
-	 *         tree such that for any node n with a dominator, n appears before
-	 *         idom(n).
-	 */
-	private LinkedList<Node> getToplogicalTraversalImplementation() {
-		if (this.topologicalTraversalImpl == null) {
-			this.topologicalTraversalImpl = new LinkedList<Node>();
-			for (Node node : this.vertex) {
-				int idx = this.topologicalTraversalImpl.indexOf(this.idom.get(node));
-				if (idx != -1){
-					this.topologicalTraversalImpl.add(idx + 1, node);
-				} else {
-					this.topologicalTraversalImpl.add(node);
-				}
-			}
-		}
-		return this.topologicalTraversalImpl;
-	}
-
-	private AtlasSet<Node> getSuccessors(Node node) {
-		return this.graph.getPredecessors(node);
-	}
-}
\ No newline at end of file
+}
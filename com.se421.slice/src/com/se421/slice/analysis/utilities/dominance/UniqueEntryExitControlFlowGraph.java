@@ -1,12 +1,12 @@
 package com.se421.slice.analysis.utilities.dominance;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.ensoftcorp.atlas.core.db.graph.Edge;
 import com.ensoftcorp.atlas.core.db.graph.Graph;
-import com.ensoftcorp.atlas.core.db.graph.GraphElement.EdgeDirection;
 import com.ensoftcorp.atlas.core.db.graph.Node;
 import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
 import com.ensoftcorp.atlas.core.db.set.AtlasSet;
-import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.script.Common;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
 import com.se421.slice.analysis.utilities.CommonQueries;
@@ -80,6 +80,58 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 	 */
 	private Node function;
 	
+	/**
+	 * The adjacency snapshot of the graph, built on demand
+	 */
+	private IndexedGraph indexedGraph = null;
+	
+	/**
+	 * The graph of the nodes and edges, built on demand
+	 */
+	private Graph graph = null;
+	
+	/**
+	 * The unique entry/exit control flow graph of each function, without and
+	 * with exceptional control flow, built on first use until the next index
+	 */
+	private static final ConcurrentHashMap<Node, UniqueEntryExitControlFlowGraph> functionGraphs = new ConcurrentHashMap<Node, UniqueEntryExitControlFlowGraph>();
+	private static final ConcurrentHashMap<Node, UniqueEntryExitControlFlowGraph> exceptionalFunctionGraphs = new ConcurrentHashMap<Node, UniqueEntryExitControlFlowGraph>();
+	
+	/**
+	 * Returns the (cached) unique entry/exit control flow graph of the given
+	 * function for the smart views, with containment edges to its master
+	 * nodes. The graph and its indexed adjacency are built once and shared by
+	 * every caller, so its node and edge sets must not be modified. The
+	 * dominance analysis binds to the registered master nodes instead, see
+	 * {@link MasterNodeRegistry}.
+	 * 
+	 * @param function
+	 * @param includeExceptionalControlFlow
+	 *            if true the graph includes exceptional control flow edges
+	 * @return
+	 */
+	public static UniqueEntryExitControlFlowGraph getFunctionGraph(Node function, boolean includeExceptionalControlFlow) {
+		ConcurrentHashMap<Node, UniqueEntryExitControlFlowGraph> graphs = includeExceptionalControlFlow ? exceptionalFunctionGraphs : functionGraphs;
+		UniqueEntryExitControlFlowGraph graph = graphs.get(function);
+		if(graph == null){
+			Graph cfg = (includeExceptionalControlFlow ? CommonQueries.excfg(function) : CommonQueries.cfg(function)).eval();
+			graph = new UniqueEntryExitControlFlowGraph(cfg, true);
+			UniqueEntryExitControlFlowGraph previous = graphs.putIfAbsent(function, graph);
+			if(previous != null){
+				graph = previous;
+			}
+		}
+		return graph;
+	}
+	
+	/**
+	 * Discards all cached function graphs
+	 */
+	public static void clearCache() {
+		functionGraphs.clear();
+		exceptionalFunctionGraphs.clear();
+	}
+	
 	/**
 	 * Constructs a new unique entry/exit control flow graph. Assumes the entry
 	 * is tagged with XCSG.controlFlowRoot and the exits are tagged with
@@ -130,7 +182,7 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 	 * @param addContains
 	 */
 	public UniqueEntryExitControlFlowGraph(Graph cfg, AtlasSet<Node> roots, AtlasSet<Node> exits, boolean addContains) {
-		this(cfg, roots, false, exits, false, false);
+		this(cfg, roots, false, exits, false, addContains);
 	}
 	
 	/**
@@ -185,110 +237,44 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 	}
 	
 	/**
-	 * Creates the nodes and edges for setting up the master entry node
+	 * Looks up (or creates) the master entry node and the edges from it to
+	 * the roots in the {@link MasterNodeRegistry}
 	 * @param roots nodes to consider as control flow roots (entry points) in the graph
 	 */
 	private Node setupMasterEntryNode(AtlasSet<Node> roots, boolean addContains){
-		// search if the function has a master entry node created previously
-		Node masterEntryNode;
-		if(addContains){
-			// note we are reusing master entry nodes so the search should be from
-			// as a child of the function
-			masterEntryNode = Common.toQ(function).children()
-					.nodes(UniqueEntryExitCFG_Master_Entry)
-					.eval().nodes().one();
-		} else {
-			// note we are reusing master entry nodes so the search should be from
-			// the entire function cfg not just the specified roots
-			masterEntryNode = Query.universe()
-					.predecessors(CommonQueries.cfg(function))
-					.nodes(UniqueEntryExitCFG_Master_Entry)
-					.eval().nodes().one();
-		}
-		
-		// if master entry node has not been created previously, then we need to
-		// create one now
-		if (masterEntryNode == null) {
-			masterEntryNode = Graph.U.createNode();
-			masterEntryNode.attr().put(XCSG.name, UniqueEntryExitCFG_Master_Entry_Name);
-			masterEntryNode.tag(UniqueEntryExitCFG_Master_Entry);
-			if(addContains){
-				Edge containsEdge = Graph.U.createEdge(function, masterEntryNode);
-				containsEdge.tag(XCSG.Contains);
-			}
-		}
+		MasterNodeRegistry.MasterNodes masterNodes = MasterNodeRegistry.getMasterNodes(function);
+		Node masterEntryNode = masterNodes.getOrCreateEntry(addContains);
 		
 		// add the master entry node
 		this.nodes.add(masterEntryNode);
 		
-		// create entry edges from the master entry to the root nodes
-		// and check if the entry edges exist before creating new ones
+		// add entry edges from the master entry to the root nodes
 		for(Node root : roots){
-			Edge entryEdge = this.getOrCreateEdge(masterEntryNode, root);
-			this.edges.add(entryEdge);
+			this.edges.add(masterNodes.getOrCreateEntryEdge(root));
 		}
 		return masterEntryNode;
 	}
 
 	/**
-	 * Creates the nodes and edges for setting up the master exit node
+	 * Looks up (or creates) the master exit node and the edges to it from
+	 * the exits in the {@link MasterNodeRegistry}
 	 * @param exits nodes to consider as control flow exits (exit points) in the graph
 	 * @return
 	 */
 	private Node setupMasterExitNode(AtlasSet<Node> exits, boolean addContains) {
-		// search if the function has a master entry node created previously
-		Node masterExitNode;
-		if(addContains){
-			// note we are reusing master entry nodes so the search should be from
-			// as a child of the function
-			masterExitNode = Common.toQ(function).children()
-					.nodes(UniqueEntryExitCFG_Master_Exit)
-					.eval().nodes().one();
-		} else {
-			// note we are reusing master entry nodes so the search should be from
-			// the entire function cfg not just the specified roots
-			masterExitNode = Query.universe()
-					.successors(CommonQueries.cfg(function))
-					.nodes(UniqueEntryExitCFG_Master_Exit)
-					.eval().nodes().one();
-		}
-		
-		// if master exit node has not been created previously, then we need to
-		// create one now
-		if (masterExitNode == null) {
-			masterExitNode = Graph.U.createNode();
-			masterExitNode.attr().put(XCSG.name, UniqueEntryExitCFG_Master_Exit_Name);
-			masterExitNode.tag(UniqueEntryExitCFG_Master_Exit);
-			if(addContains){
-				Edge containsEdge = Graph.U.createEdge(function, masterExitNode);
-				containsEdge.tag(XCSG.Contains);
-			}
-		}
+		MasterNodeRegistry.MasterNodes masterNodes = MasterNodeRegistry.getMasterNodes(function);
+		Node masterExitNode = masterNodes.getOrCreateExit(addContains);
 		
 		// add the master exit node to the pcg
 		this.nodes.add(masterExitNode);
 
-		// create exit edges from the exits to the master exit node
-		// and check if the exit edges exist before creating new ones
+		// add exit edges from the exits to the master exit node
 		for (Node exit : exits) {
-			Edge exitEdge = this.getOrCreateEdge(exit, masterExitNode);
-			this.edges.add(exitEdge);
+			this.edges.add(masterNodes.getOrCreateExitEdge(exit));
 		}
 		return masterExitNode;
 	}
 	
-	private Edge getOrCreateEdge(Node masterEntryNode, Node root) {
-		AtlasSet<Edge> betweenEdges = Query.universe().edges(UniqueEntryExitCFG_Edge).betweenStep(Common.toQ(masterEntryNode), Common.toQ(root)).eval().edges();
-		if (!betweenEdges.isEmpty()) {
-			return betweenEdges.one();
-		} else {
-			Edge edge = Graph.U.createEdge(masterEntryNode, root);
-			edge.tag(XCSG.Edge);
-			edge.tag(UniqueEntryExitCFG_Edge);
-			return edge;
-		}
-	}
-	
 	public Graph getCFG(){
 		return cfg;
 	}
@@ -305,8 +291,15 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 		return function;
 	}
 	
-	public Graph getGraph(){
-		return Common.toQ(nodes).induce(Common.toQ(edges)).eval();
+	/**
+	 * Returns the graph of the nodes and edges, built once on first use
+	 * @return
+	 */
+	public synchronized Graph getGraph(){
+		if(graph == null){
+			graph = Common.toQ(nodes).induce(Common.toQ(edges)).eval();
+		}
+		return graph;
 	}
 	
 	/**
@@ -316,14 +309,7 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 	 */
 	@Override
 	public AtlasSet<Node> getPredecessors(Node node){
-		AtlasSet<Node> predecessors = new AtlasHashSet<Node>();
-		for(Edge edge : edges()){
-			if(edge.getNode(EdgeDirection.TO).equals(node)){
-				Node parent = edge.getNode(EdgeDirection.FROM);
-				predecessors.add(parent);
-			}
-		}
-		return predecessors;
+		return getIndexedGraph().getPredecessors(node);
 	}
 
 	/**
@@ -332,15 +318,8 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 	 * @return Successors of node
 	 */
 	@Override
-	public AtlasSet<Node> getSuccessors(Node node){		
-		AtlasSet<Node> successors = new AtlasHashSet<Node>();
-		for(Edge edge : edges()){
-			if(edge.getNode(EdgeDirection.FROM).equals(node)){
-				Node child = edge.getNode(EdgeDirection.TO);
-				successors.add(child);
-			}
-		}
-		return successors;
+	public AtlasSet<Node> getSuccessors(Node node){
+		return getIndexedGraph().getSuccessors(node);
 	}
 
 	@Override
@@ -363,4 +342,12 @@ public class UniqueEntryExitControlFlowGraph implements UniqueEntryExitGraph {
 		return edges;
 	}
 	
+	@Override
+	public synchronized IndexedGraph getIndexedGraph() {
+		if(indexedGraph == null){
+			indexedGraph = IndexedGraph.build(this);
+		}
+		return indexedGraph;
+	}
+	
 }
@@ -2,7 +2,6 @@ package com.se421.slice.analysis.utilities.dominance;
 
 import com.ensoftcorp.atlas.core.db.graph.Edge;
 import com.ensoftcorp.atlas.core.db.graph.Graph;
-import com.ensoftcorp.atlas.core.db.graph.GraphElement.EdgeDirection;
 import com.ensoftcorp.atlas.core.db.graph.Node;
 import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
 import com.ensoftcorp.atlas.core.db.set.AtlasSet;
@@ -22,6 +21,11 @@ public class UniqueEntryExitCustomGraph implements UniqueEntryExitGraph {
 	private Node masterEntry;
 	private Node masterExit;
 	
+	/**
+	 * The adjacency snapshot of the graph, built on demand
+	 */
+	private IndexedGraph indexedGraph = null;
+	
 	/** 
 	 * @param a wrapper for a custom pre-formed entry/exit graph
 	 */
@@ -45,14 +49,7 @@ public class UniqueEntryExitCustomGraph implements UniqueEntryExitGraph {
 	 */
 	@Override
 	public AtlasSet<Node> getPredecessors(Node node){
-		AtlasSet<Node> predecessors = new AtlasHashSet<Node>();
-		for(Edge edge : this.edges()){
-			if(edge.getNode(EdgeDirection.TO).equals(node)){
-				Node parent = edge.getNode(EdgeDirection.FROM);
-				predecessors.add(parent);
-			}
-		}
-		return predecessors;
+		return getIndexedGraph().getPredecessors(node);
 	}
 
 	/**
@@ -61,15 +58,8 @@ public class UniqueEntryExitCustomGraph implements UniqueEntryExitGraph {
 	 * @return Successors of node
 	 */
 	@Override
-	public AtlasSet<Node> getSuccessors(Node node){		
-		AtlasSet<Node> successors = new AtlasHashSet<Node>();
-		for(Edge edge : this.edges()){
-			if(edge.getNode(EdgeDirection.FROM).equals(node)){
-				Node child = edge.getNode(EdgeDirection.TO);
-				successors.add(child);
-			}
-		}
-		return successors;
+	public AtlasSet<Node> getSuccessors(Node node){
+		return getIndexedGraph().getSuccessors(node);
 	}
 
 	@Override
@@ -92,4 +82,12 @@ public class UniqueEntryExitCustomGraph implements UniqueEntryExitGraph {
 		return edges;
 	}
 	
+	@Override
+	public synchronized IndexedGraph getIndexedGraph() {
+		if(indexedGraph == null){
+			indexedGraph = IndexedGraph.build(this);
+		}
+		return indexedGraph;
+	}
+	
 }
@@ -37,4 +37,11 @@ public interface UniqueEntryExitGraph {
 	 * @return
 	 */
 	public AtlasSet<Edge> edges();
-}
\ No newline at end of file
+	
+	/**
+	 * Returns the int-indexed adjacency snapshot of the graph, built once on
+	 * first use
+	 * @return
+	 */
+	public IndexedGraph getIndexedGraph();
+}
\ No newline at end of file
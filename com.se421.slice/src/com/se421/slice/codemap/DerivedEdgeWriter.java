@@ -0,0 +1,278 @@
+package com.se421.slice.codemap;
+
+import java.util.Arrays;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Graph;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasHashSet;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.log.Log;
+
+/**
+ * Writes derived edges (such as dominance edges) between the nodes of an
+ * {@link IndexedGraph} to the graph database in bulk.
+ *
+ * The derived edges that already exist between the nodes of the graph are
+ * loaded once, by walking the tagged out edges of each node, into a hash
+ * index keyed by (from id, to id, tag) packed into a long. Requested edges are
+ * deduplicated against the index in memory and only the missing ones are
+ * created, in a single pass by {@link #commit()}. This replaces a universe wide
+ * betweenStep query per edge.
+ *
+ * Instances are not thread safe.
+ */
+public class DerivedEdgeWriter {
+
+	private static final long EMPTY = -1L;
+
+	/**
+	 * The graph whose node ids key the index
+	 */
+	private final IndexedGraph index;
+
+	/**
+	 * The tags of the derived edges, a tag is keyed by its position
+	 */
+	private final String[] tags;
+
+	/**
+	 * The nodes bound to the virtual entry and exit ids of the graph, if any
+	 */
+	private final Node entryNode;
+	private final Node exitNode;
+
+	/**
+	 * Open addressing hash index from packed keys to edges. A slot holding a
+	 * key with a null edge is an edge requested but not committed yet.
+	 */
+	private long[] keys;
+	private Edge[] edges;
+	private int entries = 0;
+
+	/**
+	 * Requested edges that do not exist yet, as packed keys in request order
+	 */
+	private long[] pending = new long[16];
+	private int pendingCount = 0;
+
+	/**
+	 * The existing and created edges that were requested
+	 */
+	private final AtlasSet<Edge> requested = new AtlasHashSet<Edge>();
+
+	/**
+	 * Loads the existing edges with the given tags between the nodes of the
+	 * given graph
+	 *
+	 * @param index
+	 * @param tags
+	 */
+	public DerivedEdgeWriter(IndexedGraph index, String... tags) {
+		this(index, null, null, tags);
+	}
+
+	/**
+	 * Loads the existing edges with the given tags between the nodes of the
+	 * given graph, binding the virtual entry and exit of the graph (see
+	 * {@link IndexedGraph#build(AtlasSet, AtlasSet, AtlasSet, AtlasSet)}) to
+	 * the given nodes
+	 *
+	 * @param index
+	 * @param entryNode
+	 *            the node written for the virtual entry, may be null
+	 * @param exitNode
+	 *            the node written for the virtual exit, may be null
+	 * @param tags
+	 */
+	public DerivedEdgeWriter(IndexedGraph index, Node entryNode, Node exitNode, String... tags) {
+		this.index = index;
+		this.tags = tags;
+		this.entryNode = entryNode;
+		this.exitNode = exitNode;
+		int capacity = 64;
+		while(capacity < index.size() * 4){
+			capacity <<= 1;
+		}
+		this.keys = new long[capacity];
+		this.edges = new Edge[capacity];
+		Arrays.fill(keys, EMPTY);
+		for(int from=0; from<index.size(); from++){
+			Node fromNode = getNode(from);
+			if(fromNode == null){
+				continue; // unbound virtual entry or exit
+			}
+			for(int tag=0; tag<tags.length; tag++){
+				for(Edge edge : fromNode.out(tags[tag])){
+					int to = getId(edge.to());
+					if(to != -1){
+						put(key(from, to, tag), edge);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Requests an edge with the given tag between the nodes with the given
+	 * ids. Requests involving an unbound virtual node (one without a
+	 * {@link Node}) are ignored.
+	 *
+	 * @param from
+	 * @param to
+	 * @param tag
+	 *            one of the tags given at construction
+	 */
+	public void add(int from, int to, String tag) {
+		if(getNode(from) == null || getNode(to) == null){
+			return;
+		}
+		long key = key(from, to, tagIndex(tag));
+		int slot = find(key);
+		if(keys[slot] == key){
+			if(edges[slot] != null){
+				requested.add(edges[slot]);
+			}
+			return;
+		}
+		put(key, null);
+		if(pendingCount == pending.length){
+			pending = Arrays.copyOf(pending, pendingCount * 2);
+		}
+		pending[pendingCount++] = key;
+	}
+
+	/**
+	 * Requests an edge with the given tag between the given nodes
+	 *
+	 * @param from
+	 * @param to
+	 * @param tag
+	 *            one of the tags given at construction
+	 */
+	public void add(Node from, Node to, String tag) {
+		int fromId = getId(from);
+		int toId = getId(to);
+		if(fromId == -1 || toId == -1){
+			String message = "Derived edge endpoints must be nodes of the indexed graph";
+			IllegalArgumentException error = new IllegalArgumentException(message);
+			Log.error(message, error);
+			throw error;
+		}
+		add(fromId, toId, tag);
+	}
+
+	/**
+	 * Creates the requested edges that do not exist yet
+	 *
+	 * @return every requested edge, existing or created
+	 */
+	public AtlasSet<Edge> commit() {
+		for(int i=0; i<pendingCount; i++){
+			long key = pending[i];
+			int tag = (int) (key % tags.length);
+			long pair = key / tags.length;
+			Node from = getNode((int) (pair / index.size()));
+			Node to = getNode((int) (pair % index.size()));
+			Edge edge = Graph.U.createEdge(from, to);
+			edge.tag(tags[tag]);
+			edge.putAttr(XCSG.name, tags[tag]);
+			edges[find(key)] = edge;
+			requested.add(edge);
+		}
+		pendingCount = 0;
+		return requested;
+	}
+
+	private Node getNode(int id) {
+		Node node = index.getNode(id);
+		if(node == null){
+			if(id == index.getEntry()){
+				return entryNode;
+			} else if(id == index.getExit()){
+				return exitNode;
+			}
+		}
+		return node;
+	}
+
+	private int getId(Node node) {
+		if(node == null){
+			return -1;
+		}
+		int id = index.getId(node);
+		if(id == -1){
+			if(node.equals(entryNode)){
+				return index.getEntry();
+			} else if(node.equals(exitNode)){
+				return index.getExit();
+			}
+		}
+		return id;
+	}
+
+	private long key(int from, int to, int tag) {
+		return (((long) from) * index.size() + to) * tags.length + tag;
+	}
+
+	private int tagIndex(String tag) {
+		for(int i=0; i<tags.length; i++){
+			if(tags[i].equals(tag)){
+				return i;
+			}
+		}
+		String message = "Unknown derived edge tag: " + tag;
+		IllegalArgumentException error = new IllegalArgumentException(message);
+		Log.error(message, error);
+		throw error;
+	}
+
+	/**
+	 * Returns the slot holding the given key or the empty slot where it
+	 * belongs
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) (mix(key) & mask);
+		while(keys[slot] != EMPTY && keys[slot] != key){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void put(long key, Edge edge) {
+		int slot = find(key);
+		if(keys[slot] == EMPTY){
+			keys[slot] = key;
+			entries++;
+			if(entries * 2 > keys.length){
+				grow();
+			}
+			slot = find(key);
+		}
+		edges[slot] = edge;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Edge[] oldEdges = edges;
+		keys = new long[oldKeys.length * 2];
+		edges = new Edge[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for(int i=0; i<oldKeys.length; i++){
+			if(oldKeys[i] != EMPTY){
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				edges[slot] = oldEdges[i];
+			}
+		}
+	}
+
+	private static long mix(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return key ^ (key >>> 32);
+	}
+
+}
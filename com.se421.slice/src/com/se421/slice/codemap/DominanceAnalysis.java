@@ -1,10 +1,13 @@
 package com.se421.slice.codemap;
 
-import java.util.Map.Entry;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.SubMonitor;
 
 import com.ensoftcorp.atlas.core.db.graph.Edge;
 import com.ensoftcorp.atlas.core.db.graph.Graph;
@@ -15,12 +18,18 @@ import com.ensoftcorp.atlas.core.query.Q;
 import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.script.Common;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.DependenceGraphCache;
 import com.se421.slice.analysis.utilities.CommonQueries;
+import com.se421.slice.analysis.utilities.dominance.DominatorAlgorithm;
 import com.se421.slice.analysis.utilities.dominance.DominatorTree;
+import com.se421.slice.analysis.utilities.dominance.DynamicDominatorTree;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.analysis.utilities.dominance.MasterNodeRegistry;
 import com.se421.slice.analysis.utilities.dominance.PostDominatorTree;
 import com.se421.slice.analysis.utilities.dominance.UniqueEntryExitControlFlowGraph;
 import com.se421.slice.analysis.utilities.dominance.UniqueEntryExitGraph;
 import com.se421.slice.log.Log;
+import com.se421.slice.preferences.SlicePreferences;
 
 /**
  * Primary interface for computing dominance relationships. This also acts as a
@@ -76,64 +85,726 @@ public class DominanceAnalysis {
 	 */
 	public static final String POST_DOMINANCE_FRONTIER_EDGE = "pdom-frontier";
 	
+	/**
+	 * The dominance relationships of the control flow graph including
+	 * exceptional control flow edges are tagged separately from those of the
+	 * normal control flow graph, so both can be indexed side by side.
+	 */
+	public static final String EXCEPTIONAL_DOMINATOR_TREE_EDGE = "exceptional-idom";
+	public static final String EXCEPTIONAL_POST_DOMINATOR_TREE_EDGE = "exceptional-ipdom";
+	public static final String EXCEPTIONAL_DOMINANCE_FRONTIER_EDGE = "exceptional-dom-frontier";
+	public static final String EXCEPTIONAL_POST_DOMINANCE_FRONTIER_EDGE = "exceptional-pdom-frontier";
+	
+	/**
+	 * The dominance relationships that can be computed selectively. The
+	 * forward relations need only the dominator tree and the post relations
+	 * need only the post-dominator tree. The exceptional relations are those
+	 * of the control flow graph including exceptional control flow edges.
+	 */
+	public static enum Relation {
+		DOMINATOR_TREE(DOMINATOR_TREE_EDGE, false, false, false),
+		DOMINANCE_FRONTIER(DOMINANCE_FRONTIER_EDGE, false, true, false),
+		POST_DOMINATOR_TREE(POST_DOMINATOR_TREE_EDGE, true, false, false),
+		POST_DOMINANCE_FRONTIER(POST_DOMINANCE_FRONTIER_EDGE, true, true, false),
+		EXCEPTIONAL_DOMINATOR_TREE(EXCEPTIONAL_DOMINATOR_TREE_EDGE, false, false, true),
+		EXCEPTIONAL_DOMINANCE_FRONTIER(EXCEPTIONAL_DOMINANCE_FRONTIER_EDGE, false, true, true),
+		EXCEPTIONAL_POST_DOMINATOR_TREE(EXCEPTIONAL_POST_DOMINATOR_TREE_EDGE, true, false, true),
+		EXCEPTIONAL_POST_DOMINANCE_FRONTIER(EXCEPTIONAL_POST_DOMINANCE_FRONTIER_EDGE, true, true, true);
+		
+		private final String edgeTag;
+		private final boolean post;
+		private final boolean frontier;
+		private final boolean exceptional;
+		
+		private Relation(String edgeTag, boolean post, boolean frontier, boolean exceptional) {
+			this.edgeTag = edgeTag;
+			this.post = post;
+			this.frontier = frontier;
+			this.exceptional = exceptional;
+		}
+		
+		/**
+		 * Returns the four relations of the normal or of the exceptional
+		 * control flow graph
+		 * @param exceptional
+		 * @return
+		 */
+		public static EnumSet<Relation> getRelations(boolean exceptional) {
+			EnumSet<Relation> relations = EnumSet.noneOf(Relation.class);
+			for(Relation relation : values()){
+				if(relation.exceptional == exceptional){
+					relations.add(relation);
+				}
+			}
+			return relations;
+		}
+		
+		/**
+		 * Returns the corresponding relation of the exceptional control flow
+		 * graph, or this relation if it is exceptional
+		 * @return
+		 */
+		public Relation toExceptional() {
+			for(Relation relation : values()){
+				if(relation.exceptional && relation.post == post && relation.frontier == frontier){
+					return relation;
+				}
+			}
+			return this;
+		}
+		
+		/**
+		 * Returns the tag of the edges of this relation
+		 * @return
+		 */
+		public String getEdgeTag() {
+			return edgeTag;
+		}
+		
+		/**
+		 * Returns true if this relation is derived from the post-dominator tree
+		 * @return
+		 */
+		public boolean isPostDominance() {
+			return post;
+		}
+		
+		/**
+		 * Returns true if this relation is a dominance frontier rather than a
+		 * tree
+		 * @return
+		 */
+		public boolean isFrontier() {
+			return frontier;
+		}
+		
+		/**
+		 * Returns true if this relation is computed on the control flow graph
+		 * including exceptional control flow edges
+		 * @return
+		 */
+		public boolean isExceptional() {
+			return exceptional;
+		}
+	}
+	
+	/**
+	 * The dominance edges of each function indexed since the last indexing, by
+	 * relation
+	 */
+	private static final Map<Relation, ConcurrentHashMap<Node, Graph>> functionDominance = new EnumMap<Relation, ConcurrentHashMap<Node, Graph>>(Relation.class);
+	
+	/**
+	 * The dynamic dominator and post-dominator trees of each function whose
+	 * control flow graph was refined since the last indexing, by the tree
+	 * relation they maintain
+	 */
+	private static final Map<Relation, ConcurrentHashMap<Node, DynamicDominatorTree>> dynamicTrees = new EnumMap<Relation, ConcurrentHashMap<Node, DynamicDominatorTree>>(Relation.class);
+	
+	/**
+	 * The dominance cache fingerprint of the control flow graph of each
+	 * function computed since the last indexing, the key of its stored record
+	 */
+	private static final ConcurrentHashMap<Node, DominanceCache.Fingerprint> fingerprints = new ConcurrentHashMap<Node, DominanceCache.Fingerprint>();
+	
+	static {
+		for(Relation relation : Relation.values()){
+			functionDominance.put(relation, new ConcurrentHashMap<Node, Graph>());
+			if(!relation.isFrontier()){
+				dynamicTrees.put(relation, new ConcurrentHashMap<Node, DynamicDominatorTree>());
+			}
+		}
+	}
+	
 	public DominanceAnalysis() {}
 	
+	/**
+	 * Returns the dominance edges of the given function, computing and
+	 * indexing them on first use if they were not computed during indexing
+	 * (see {@link SlicePreferences#isLazyDominanceEnabled()}). Safe to call
+	 * from multiple threads, each function is indexed at most once.
+	 * 
+	 * @param function
+	 * @return
+	 */
+	public static Graph getDominance(Node function) {
+		return getDominance(function, getIndexedRelations());
+	}
+	
+	/**
+	 * Returns the relations indexed for every function: the relations of the
+	 * normal control flow graph and, if enabled, of the exceptional control
+	 * flow graph
+	 * 
+	 * @return
+	 */
+	public static EnumSet<Relation> getIndexedRelations() {
+		if(SlicePreferences.isExceptionalControlFlowIncluded()){
+			return EnumSet.allOf(Relation.class);
+		}
+		return Relation.getRelations(false);
+	}
+	
+	/**
+	 * Returns the edges of the given dominance relations of the given
+	 * function, computing and indexing only the relations that have not been
+	 * indexed yet. Safe to call from multiple threads, each relation of a
+	 * function is indexed at most once.
+	 * 
+	 * @param function
+	 * @param relations
+	 * @return
+	 */
+	public static Graph getDominance(Node function, EnumSet<Relation> relations) {
+		EnumSet<Relation> missing = getMissingRelations(function, relations);
+		if(!missing.isEmpty()){
+			// compute outside of the lock, only the graph writes are serialized
+			FunctionDominance computed = computeFunctionDominance(function, SlicePreferences.getDominatorAlgorithm(), null, missing);
+			synchronized(functionDominance){
+				missing = getMissingRelations(function, missing);
+				if(!missing.isEmpty()){
+					Graph dominance = computed == null ? Common.empty().eval() : commitFunctionDominance(computed);
+					putRelations(function, dominance, missing);
+				}
+			}
+		}
+		if(relations.size() == 1){
+			// the indexed edges of a single relation are already a graph
+			Graph dominance = functionDominance.get(relations.iterator().next()).get(function);
+			return dominance != null ? dominance : Common.empty().eval();
+		}
+		AtlasSet<Edge> edges = new AtlasHashSet<Edge>();
+		for(Relation relation : relations){
+			Graph dominance = functionDominance.get(relation).get(function);
+			if(dominance != null){
+				edges.addAll(dominance.edges());
+			}
+		}
+		return Common.toQ(edges).eval();
+	}
+	
+	/**
+	 * Returns the dominance edges of the given functions, computing them on
+	 * first use
+	 * 
+	 * @param functions
+	 * @return
+	 */
+	public static Q getDominance(Q functions) {
+		return getDominance(functions, getIndexedRelations());
+	}
+	
+	/**
+	 * Returns the edges of the given dominance relations of the given
+	 * functions, computing them on first use
+	 * 
+	 * @param functions
+	 * @param relations
+	 * @return
+	 */
+	public static Q getDominance(Q functions, EnumSet<Relation> relations) {
+		AtlasSet<Edge> edges = new AtlasHashSet<Edge>();
+		for(Node function : functions.eval().nodes()){
+			edges.addAll(getDominance(function, relations).edges());
+		}
+		return Common.toQ(edges);
+	}
+	
+	private static EnumSet<Relation> getMissingRelations(Node function, EnumSet<Relation> relations) {
+		EnumSet<Relation> missing = EnumSet.noneOf(Relation.class);
+		for(Relation relation : relations){
+			if(!functionDominance.get(relation).containsKey(function)){
+				missing.add(relation);
+			}
+		}
+		return missing;
+	}
+	
+	/**
+	 * Records the edges of the given relations of a function as indexed, must
+	 * hold the lock on functionDominance
+	 */
+	private static void putRelations(Node function, Graph dominance, EnumSet<Relation> relations) {
+		for(Relation relation : relations){
+			functionDominance.get(relation).put(function, Common.toQ(dominance).edges(relation.getEdgeTag()).retainEdges().eval());
+		}
+	}
+	
+	/**
+	 * Discards the record of which functions have been indexed, the next
+	 * access to each function recomputes its dominance edges
+	 */
+	public static void clearCache() {
+		synchronized(functionDominance){
+			for(ConcurrentHashMap<Node, Graph> functions : functionDominance.values()){
+				functions.clear();
+			}
+		}
+		synchronized(dynamicTrees){
+			for(ConcurrentHashMap<Node, DynamicDominatorTree> functions : dynamicTrees.values()){
+				functions.clear();
+			}
+		}
+		fingerprints.clear();
+	}
+	
+	/**
+	 * Returns the immediate dominator edges of every indexed function. With
+	 * lazy dominance only functions accessed so far have been indexed, see
+	 * {@link #getDominatorTreeEdges(Q)}.
+	 * @return
+	 */
 	public static Q getDominatorTreeEdges(){
 		return Query.universe().edges(DOMINATOR_TREE_EDGE).retainEdges();
 	}
 	
+	/**
+	 * Returns the immediate dominator edges of the given functions, computing
+	 * them on first use
+	 * @param functions
+	 * @return
+	 */
+	public static Q getDominatorTreeEdges(Q functions){
+		return getDominance(functions, EnumSet.of(Relation.DOMINATOR_TREE));
+	}
+	
+	/**
+	 * Returns the immediate post-dominator edges of every indexed function
+	 * @return
+	 */
 	public static Q getPostDominatorTreeEdges(){
 		return Query.universe().edges(POST_DOMINATOR_TREE_EDGE).retainEdges();
 	}
 	
+	/**
+	 * Returns the immediate post-dominator edges of the given functions,
+	 * computing them on first use
+	 * @param functions
+	 * @return
+	 */
+	public static Q getPostDominatorTreeEdges(Q functions){
+		return getDominance(functions, EnumSet.of(Relation.POST_DOMINATOR_TREE));
+	}
+	
+	/**
+	 * Returns the dominance frontier edges of every indexed function
+	 * @return
+	 */
 	public static Q getDominanceFrontierEdges(){
 		return Query.universe().edges(DOMINANCE_FRONTIER_EDGE).retainEdges();
 	}
 	
+	/**
+	 * Returns the dominance frontier edges of the given functions, computing
+	 * them on first use
+	 * @param functions
+	 * @return
+	 */
+	public static Q getDominanceFrontierEdges(Q functions){
+		return getDominance(functions, EnumSet.of(Relation.DOMINANCE_FRONTIER));
+	}
+	
+	/**
+	 * Returns the post-dominance frontier edges of every indexed function
+	 * @return
+	 */
 	public static Q getPostDominanceFrontierEdges(){
 		return Query.universe().edges(POST_DOMINANCE_FRONTIER_EDGE).retainEdges();
 	}
+	
+	/**
+	 * Returns the post-dominance frontier edges of the given functions,
+	 * computing them on first use
+	 * @param functions
+	 * @return
+	 */
+	public static Q getPostDominanceFrontierEdges(Q functions){
+		return getDominance(functions, EnumSet.of(Relation.POST_DOMINANCE_FRONTIER));
+	}
+	
+	/**
+	 * Returns the post-dominance frontier edges of the given function,
+	 * computing them on first use
+	 * @param function
+	 * @return
+	 */
+	public static Graph getPostDominanceFrontierEdges(Node function){
+		return getDominance(function, EnumSet.of(Relation.POST_DOMINANCE_FRONTIER));
+	}
 
 	public static String displayName() {
 		return "Computing Control Flow Graph Dominance";
 	}
 
+	/**
+	 * Computes and indexes the dominance edges of every function. The
+	 * dominance relationships of each function are computed from its control
+	 * flow graph without writing to the graph database, on a pool of
+	 * {@link SlicePreferences#getIndexingParallelism()} worker threads,
+	 * largest control flow graph first. The resulting edges are committed
+	 * serially on the calling thread as the functions complete.
+	 * 
+	 * If the dominance cache is enabled, the relationships of functions whose
+	 * control flow graph is unchanged since the last index are read from the
+	 * cache instead of computed.
+	 * 
+	 * If lazy dominance is enabled the indexing stage skips this and each
+	 * function is computed by {@link #getDominance(Node)} on first use.
+	 * 
+	 * @param monitor
+	 */
 	public static void performIndexing(IProgressMonitor monitor) {
 		Log.info("Computing Control Flow Graph Dominator Trees");
 		AtlasSet<Node> functions = Query.resolve(null, Query.universe().nodes(XCSG.Function).eval().nodes());
-		SubMonitor task = SubMonitor.convert(monitor, (int) functions.size());
-		int functionsCompleted = 0;
-		for(Node function : functions){
-			Q cfg;
-			boolean includeExceptionalEdges = false;
-			if(includeExceptionalEdges){
-				cfg = CommonQueries.excfg(function);
+		final DominatorAlgorithm algorithm = SlicePreferences.getDominatorAlgorithm();
+		final DominanceCache cache = SlicePreferences.isDominanceCacheEnabled() ? DominanceCache.open(DominanceCache.getDefaultFile()) : null;
+		final EnumSet<Relation> relations = getIndexedRelations();
+		IndexingScheduler.Report report = IndexingScheduler.run("Computing Control Flow Graph Dominator Trees", functions, new IndexingScheduler.FunctionTask<FunctionDominance>(){
+			@Override
+			public long estimateCost(Node function) {
+				return IndexingScheduler.controlFlowSize(function);
+			}
+
+			@Override
+			public FunctionDominance compute(Node function) {
+				return computeFunctionDominance(function, algorithm, cache, relations);
+			}
+
+			@Override
+			public void commit(Node function, FunctionDominance dominance) {
+				synchronized(functionDominance){
+					putRelations(function, commitFunctionDominance(dominance), dominance.relations);
+				}
+			}
+		}, SlicePreferences.getIndexingParallelism(), monitor);
+		if(cache != null){
+			Log.info("Dominance cache: " + cache.getHits() + " functions unchanged, " + cache.getMisses() + " computed");
+			// a canceled run did not look at every function, so keep the
+			// records it did not use
+			synchronized(DominanceAnalysis.class){
+				// the current file may still be mapped, so the cache is saved
+				// to a new file and the store switches to it on next lookup
+				if(cache.save(report.isCanceled()) != null){
+					mappedStore = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The memory mapped dominance cache file, opened on first lookup
+	 */
+	private static MappedDominanceStore mappedStore = null;
+
+	/**
+	 * Returns the stored dominance relationships of a function, read with
+	 * zero-copy access from the memory mapped dominance cache rather than from
+	 * the dominance edges in the graph database. The record is found by the
+	 * fingerprint remembered when the function's dominance was computed, so
+	 * the lookup does not query the graph.
+	 * 
+	 * @param function
+	 * @return the stored relationships, or null if the dominance cache is
+	 *         disabled, the function's dominance has not been computed since
+	 *         the last indexing or the cache holds no record for its current
+	 *         control flow graph
+	 */
+	public static StoredDominance getStoredDominance(Node function) {
+		DominanceCache.Fingerprint fingerprint = fingerprints.get(function);
+		MappedDominanceStore store = fingerprint == null ? null : getMappedStore();
+		if(store == null){
+			return null;
+		}
+		DominanceRecord record = store.get(fingerprint);
+		return record == null ? null : new StoredDominance(function, record);
+	}
+
+	private static synchronized MappedDominanceStore getMappedStore() {
+		if(mappedStore == null && SlicePreferences.isDominanceCacheEnabled()){
+			File file = DominanceCache.getDefaultFile();
+			if(file.exists()){
+				try {
+					mappedStore = MappedDominanceStore.open(file);
+				} catch (IOException e){
+					Log.warning("Error mapping dominance cache", e);
+				}
+			}
+		}
+		return mappedStore;
+	}
+
+	/**
+	 * The stored dominance relationships of a function, by the node ids of
+	 * the function's canonical adjacency snapshot. The virtual master entry
+	 * and exit have ids but no nodes.
+	 */
+	public static class StoredDominance {
+		private final Node function;
+		private final DominanceRecord record;
+		private IndexedGraph index = null;
+		
+		private StoredDominance(Node function, DominanceRecord record) {
+			this.function = function;
+			this.record = record;
+		}
+		
+		/**
+		 * Returns the snapshot that maps between node ids and nodes, built
+		 * from the function's control flow graph on first use, so only
+		 * callers that need the nodes pay for the query
+		 * @return
+		 */
+		public synchronized IndexedGraph getIndexedGraph() {
+			if(index == null){
+				Q cfg = CommonQueries.cfg(function);
+				Graph g = cfg.eval();
+				AtlasSet<Node> roots = cfg.nodes(XCSG.controlFlowRoot).eval().nodes();
+				AtlasSet<Node> exits = cfg.nodes(XCSG.controlFlowExitPoint).eval().nodes();
+				index = IndexedGraph.build(DominanceCache.canonicalOrder(g, roots), g.edges(), roots, exits);
+			}
+			return index;
+		}
+		
+		/**
+		 * Returns the idom, ipdom and frontier arrays by node id
+		 * @return
+		 */
+		public DominanceRecord getRecord() {
+			return record;
+		}
+	}
+
+	/**
+	 * Computes the dominance relationships of a function without writing to
+	 * the graph database. The master entry and exit of the unique entry/exit
+	 * control flow graph are virtual nodes of the snapshot.
+	 * 
+	 * The exceptional relations are computed on the snapshot of the normal
+	 * control flow graph extended with the exceptional control flow (see
+	 * {@link IndexedGraph#extend(AtlasSet, AtlasSet, AtlasSet, AtlasSet)}),
+	 * so the normal control flow is only queried and indexed once and both
+	 * variants share node ids.
+	 * 
+	 * @param function
+	 * @param algorithm
+	 * @param cache the dominance cache to consult and update, or null to
+	 *        consult the mapped cache file instead
+	 * @param relations the relations to compute, the cache is only consulted
+	 *        for all four relations of the normal control flow graph
+	 * @return the dominance relationships by node id, or null if the function
+	 *         has no control flow graph to compute
+	 */
+	private static FunctionDominance computeFunctionDominance(Node function, DominatorAlgorithm algorithm, DominanceCache cache, EnumSet<Relation> relations) {
+		Q cfg = CommonQueries.cfg(function);
+		Graph g = cfg.eval();
+		AtlasSet<Node> roots = cfg.nodes(XCSG.controlFlowRoot).eval().nodes();
+		AtlasSet<Node> exits = cfg.nodes(XCSG.controlFlowExitPoint).eval().nodes();
+		if(g.nodes().isEmpty() || roots.isEmpty() || exits.isEmpty()){
+			// nothing to compute
+			return null;
+		}
+		FunctionDominance dominance;
+		if(cache != null && relations.containsAll(Relation.getRelations(false))){
+			// the cache is keyed by node ids in canonical order
+			IndexedGraph index = IndexedGraph.build(DominanceCache.canonicalOrder(g, roots), g.edges(), roots, exits);
+			DominanceCache.Fingerprint fingerprint = DominanceCache.fingerprint(index);
+			fingerprints.put(function, fingerprint);
+			DominanceRecord record = cache.get(fingerprint);
+			if(record == null){
+				record = DominanceRecord.of(new DominatorTree(index, algorithm), new PostDominatorTree(index, algorithm));
+				cache.put(fingerprint, record);
+			}
+			dominance = new FunctionDominance(function, index, relations);
+			dominance.record = record;
+		} else {
+			// outside of indexing the normal relations are read from the
+			// mapped cache file if it holds the function's current graph
+			MappedDominanceStore store = cache == null && !select(relations, false).isEmpty() ? getMappedStore() : null;
+			IndexedGraph index;
+			DominanceRecord record = null;
+			if(store != null){
+				index = IndexedGraph.build(DominanceCache.canonicalOrder(g, roots), g.edges(), roots, exits);
+				DominanceCache.Fingerprint fingerprint = DominanceCache.fingerprint(index);
+				fingerprints.put(function, fingerprint);
+				record = store.get(fingerprint);
 			} else {
-				cfg = CommonQueries.cfg(function);
-			}
-			Graph g = cfg.eval();
-			AtlasSet<Node> roots = cfg.nodes(XCSG.controlFlowRoot).eval().nodes();
-			AtlasSet<Node> exits = cfg.nodes(XCSG.controlFlowExitPoint).eval().nodes();
-			if(g.nodes().isEmpty() || roots.isEmpty() || exits.isEmpty()){
-				// nothing to compute
-				task.setWorkRemaining(((int) functions.size())-(functionsCompleted++));
-				continue;
+				index = IndexedGraph.build(g.nodes(), g.edges(), roots, exits);
+			}
+			dominance = new FunctionDominance(function, index, relations);
+			dominance.record = record;
+			if(record == null && needsDominatorTree(relations, false, false)){
+				dominance.dominatorTree = new DominatorTree(index, algorithm);
+			}
+			if(record == null && needsDominatorTree(relations, true, false)){
+				dominance.postDominatorTree = new PostDominatorTree(index, algorithm);
+			}
+		}
+		
+		boolean exceptionalDominance = needsDominatorTree(relations, false, true);
+		boolean exceptionalPostDominance = needsDominatorTree(relations, true, true);
+		if(exceptionalDominance || exceptionalPostDominance){
+			// add only what the exceptional control flow graph adds to the
+			// normal control flow graph
+			Q excfg = CommonQueries.excfg(function);
+			AtlasSet<Edge> exceptionalEdges = excfg.differenceEdges(cfg).eval().edges();
+			AtlasSet<Node> exceptionalRoots = excfg.nodes(XCSG.controlFlowRoot).eval().nodes();
+			AtlasSet<Node> exceptionalExits = excfg.nodes(XCSG.controlFlowExitPoint).eval().nodes();
+			IndexedGraph exceptionalIndex = dominance.index.extend(excfg.eval().nodes(), exceptionalEdges, exceptionalRoots, exceptionalExits);
+			dominance.exceptionalIndex = exceptionalIndex;
+			if(exceptionalDominance){
+				dominance.exceptionalDominatorTree = new DominatorTree(exceptionalIndex, algorithm);
+			}
+			if(exceptionalPostDominance){
+				dominance.exceptionalPostDominatorTree = new PostDominatorTree(exceptionalIndex, algorithm);
+			}
+		}
+		return dominance;
+	}
+
+	private static boolean needsDominatorTree(EnumSet<Relation> relations, boolean post) {
+		return needsDominatorTree(relations, post, false) || needsDominatorTree(relations, post, true);
+	}
+
+	private static boolean needsDominatorTree(EnumSet<Relation> relations, boolean post, boolean exceptional) {
+		for(Relation relation : relations){
+			if(relation.isPostDominance() == post && relation.isExceptional() == exceptional){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static EnumSet<Relation> select(EnumSet<Relation> relations, boolean exceptional) {
+		EnumSet<Relation> selected = EnumSet.copyOf(relations);
+		selected.retainAll(Relation.getRelations(exceptional));
+		return selected;
+	}
+
+	private static String[] getEdgeTags(EnumSet<Relation> relations) {
+		String[] tags = new String[relations.size()];
+		int i = 0;
+		for(Relation relation : relations){
+			tags[i++] = relation.getEdgeTag();
+		}
+		return tags;
+	}
+
+	/**
+	 * Writes the dominance edges of a function computed by
+	 * {@link #computeFunctionDominance(Node, DominatorAlgorithm, DominanceCache, EnumSet)},
+	 * binding the virtual master entry and exit to the registered master nodes
+	 * of the function. Must be called from a single thread.
+	 * 
+	 * @param dominance
+	 * @return
+	 */
+	private static Graph commitFunctionDominance(FunctionDominance dominance) {
+		Node entryNode = MasterNodeRegistry.getMasterEntry(dominance.function);
+		Node exitNode = MasterNodeRegistry.getMasterExit(dominance.function);
+		AtlasSet<Edge> edges = new AtlasHashSet<Edge>();
+		EnumSet<Relation> relations = select(dominance.relations, false);
+		if(!relations.isEmpty()){
+			DerivedEdgeWriter writer = new DerivedEdgeWriter(dominance.index, entryNode, exitNode, getEdgeTags(relations));
+			if(dominance.record != null){
+				addDominanceEdges(writer, dominance.record, relations);
 			} else {
-				try {
-					UniqueEntryExitGraph uexg = new UniqueEntryExitControlFlowGraph(g, roots, exits, true);
-					computeDominance(uexg);
-				} catch (Exception e){
-					Log.error("Error computing control flow graph dominance tree", e);
+				addDominanceEdges(writer, dominance.index, dominance.dominatorTree, dominance.postDominatorTree, relations);
+			}
+			edges.addAll(writer.commit());
+		}
+		EnumSet<Relation> exceptionalRelations = select(dominance.relations, true);
+		if(!exceptionalRelations.isEmpty()){
+			// the extended snapshot keeps the ids of the virtual entry and exit
+			DerivedEdgeWriter writer = new DerivedEdgeWriter(dominance.exceptionalIndex, entryNode, exitNode, getEdgeTags(exceptionalRelations));
+			addDominanceEdges(writer, dominance.exceptionalIndex, dominance.exceptionalDominatorTree, dominance.exceptionalPostDominatorTree, exceptionalRelations);
+			edges.addAll(writer.commit());
+		}
+		return Common.toQ(edges).eval();
+	}
+
+	/**
+	 * Requests the edges of the given relations from the writer, reading the
+	 * forward relations from the dominator tree and the post relations from
+	 * the post-dominator tree. A tree may be null if none of its relations
+	 * are requested.
+	 */
+	private static void addDominanceEdges(DerivedEdgeWriter writer, IndexedGraph index, DominatorTree dominatorTree, PostDominatorTree postDominatorTree, EnumSet<Relation> relations) {
+		for(Relation relation : relations){
+			DominatorTree tree = relation.isPostDominance() ? postDominatorTree : dominatorTree;
+			String tag = relation.getEdgeTag();
+			for(int id=0; id<index.size(); id++){
+				if(relation.isFrontier()){
+					for(int frontier : tree.getDominanceFrontier(id)){
+						writer.add(id, frontier, tag);
+					}
+				} else {
+					// idom edges point from a node to its idom, ipdom edges
+					// point from the ipdom to the node
+					int idom = tree.getIdom(id);
+					if(idom != -1){
+						if(relation.isPostDominance()){
+							writer.add(idom, id, tag);
+						} else {
+							writer.add(id, idom, tag);
+						}
+					}
 				}
-				if(monitor.isCanceled()){
-					Log.warning("Cancelled: Computing Control Flow Graph Dominator Trees");
-					break;
+			}
+		}
+	}
+
+	/**
+	 * Requests the edges of the given normal relations of the given record
+	 * from the writer
+	 */
+	private static void addDominanceEdges(DerivedEdgeWriter writer, DominanceRecord record, EnumSet<Relation> relations) {
+		for(Relation relation : relations){
+			String tag = relation.getEdgeTag();
+			for(int id=0; id<record.size(); id++){
+				if(relation.isFrontier()){
+					int[] frontiers = relation.isPostDominance() ? record.getPostDominanceFrontier(id) : record.getDominanceFrontier(id);
+					for(int frontier : frontiers){
+						writer.add(id, frontier, tag);
+					}
+				} else if(relation.isPostDominance()){
+					int ipdom = record.getIpdom(id);
+					if(ipdom != -1){
+						writer.add(ipdom, id, tag);
+					}
+				} else {
+					int idom = record.getIdom(id);
+					if(idom != -1){
+						writer.add(id, idom, tag);
+					}
 				}
-				task.setWorkRemaining(((int) functions.size())-(functionsCompleted++));
 			}
 		}
 	}
 
+	/**
+	 * The dominance relationships of a function, computed but not yet written
+	 * to the graph database. The normal relations are held either as a record
+	 * of all four relations or as the trees the requested relations are read
+	 * from, the exceptional relations as trees of the extended snapshot.
+	 */
+	private static class FunctionDominance {
+		private final Node function;
+		private final IndexedGraph index;
+		private final EnumSet<Relation> relations;
+		private DominanceRecord record = null;
+		private DominatorTree dominatorTree = null;
+		private PostDominatorTree postDominatorTree = null;
+		private IndexedGraph exceptionalIndex = null;
+		private DominatorTree exceptionalDominatorTree = null;
+		private PostDominatorTree exceptionalPostDominatorTree = null;
+		
+		private FunctionDominance(Node function, IndexedGraph index, EnumSet<Relation> relations) {
+			this.function = function;
+			this.index = index;
+			this.relations = EnumSet.copyOf(relations);
+		}
+	}
+
 	/**
 	 * Returns the immediate dominance tree
 	 * 
@@ -141,14 +812,7 @@ public class DominanceAnalysis {
 	 * @return
 	 */
 	public static Graph computeDominanceTree(UniqueEntryExitGraph ucfg){
-		AtlasSet<Edge> treeEdges = new AtlasHashSet<Edge>();
-		Graph dominance = computeDominance(ucfg);
-		for(Edge edge : dominance.edges()){
-			if(edge.taggedWith(DOMINATOR_TREE_EDGE)){
-				treeEdges.add(edge);
-			}
-		}
-		return Common.toQ(treeEdges).eval();
+		return computeDominance(ucfg, SlicePreferences.getDominatorAlgorithm(), EnumSet.of(Relation.DOMINATOR_TREE));
 	}
 	
 	/**
@@ -158,14 +822,7 @@ public class DominanceAnalysis {
 	 * @return
 	 */
 	public static Graph computeDominanceFrontier(UniqueEntryExitGraph ucfg){
-		AtlasSet<Edge> frontierEdges = new AtlasHashSet<Edge>();
-		Graph dominance = computeDominance(ucfg);
-		for(Edge edge : dominance.edges()){
-			if(edge.taggedWith(DOMINANCE_FRONTIER_EDGE)){
-				frontierEdges.add(edge);
-			}
-		}
-		return Common.toQ(frontierEdges).eval();
+		return computeDominance(ucfg, SlicePreferences.getDominatorAlgorithm(), EnumSet.of(Relation.DOMINANCE_FRONTIER));
 	}
 	
 	/**
@@ -175,14 +832,7 @@ public class DominanceAnalysis {
 	 * @return
 	 */
 	public static Graph computePostDominanceTree(UniqueEntryExitGraph ucfg){
-		AtlasSet<Edge> treeEdges = new AtlasHashSet<Edge>();
-		Graph dominance = computeDominance(ucfg);
-		for(Edge edge : dominance.edges()){
-			if(edge.taggedWith(POST_DOMINATOR_TREE_EDGE)){
-				treeEdges.add(edge);
-			}
-		}
-		return Common.toQ(treeEdges).eval();
+		return computeDominance(ucfg, SlicePreferences.getDominatorAlgorithm(), EnumSet.of(Relation.POST_DOMINATOR_TREE));
 	}
 	
 	/**
@@ -192,87 +842,316 @@ public class DominanceAnalysis {
 	 * @return
 	 */
 	public static Graph computePostDominanceFrontier(UniqueEntryExitGraph ucfg){
-		AtlasSet<Edge> frontierEdges = new AtlasHashSet<Edge>();
-		Graph dominance = computeDominance(ucfg);
-		for(Edge edge : dominance.edges()){
-			if(edge.taggedWith(POST_DOMINANCE_FRONTIER_EDGE)){
-				frontierEdges.add(edge);
-			}
-		}
-		return Common.toQ(frontierEdges).eval();
+		return computeDominance(ucfg, SlicePreferences.getDominatorAlgorithm(), EnumSet.of(Relation.POST_DOMINANCE_FRONTIER));
 	}
 
 	/**
-	 * Returns a graph of all dominance relationship edges
+	 * Returns a graph of all dominance relationship edges, computed with the
+	 * dominator algorithm configured in the preferences
 	 * @param ucfg
 	 * @return
 	 */
 	public static Graph computeDominance(UniqueEntryExitGraph ucfg) {
-		AtlasSet<Edge> dominanceEdges = new AtlasHashSet<Edge>();
+		return computeDominance(ucfg, SlicePreferences.getDominatorAlgorithm());
+	}
+	
+	/**
+	 * Returns a graph of all dominance relationship edges
+	 * @param ucfg
+	 * @param algorithm the algorithm used to compute the dominator trees
+	 * @return
+	 */
+	public static Graph computeDominance(UniqueEntryExitGraph ucfg, DominatorAlgorithm algorithm) {
+		return computeDominance(ucfg, algorithm, Relation.getRelations(false));
+	}
+	
+	/**
+	 * Returns a graph of the edges of the given dominance relations. Only the
+	 * trees and frontiers the relations need are computed, for example the
+	 * post-dominance frontier (control dependence) does not compute the
+	 * dominator tree. The exceptional relations tag edges computed on the
+	 * given graph, so they should only be requested for a graph that includes
+	 * the exceptional control flow.
+	 * @param ucfg
+	 * @param algorithm the algorithm used to compute the dominator trees
+	 * @param relations the relations to compute and index
+	 * @return
+	 */
+	public static Graph computeDominance(UniqueEntryExitGraph ucfg, DominatorAlgorithm algorithm, EnumSet<Relation> relations) {
+		IndexedGraph index = ucfg.getIndexedGraph();
+		DerivedEdgeWriter writer = new DerivedEdgeWriter(index, getEdgeTags(relations));
 		
-		// compute the immediate dominator tree (idom)
-		DominatorTree dominatorTree = new DominatorTree(ucfg);
-		for(Entry<Node,Node> entry : dominatorTree.getIdoms().entrySet()) {
-			Node fromNode = entry.getKey();
-			Node toNode = entry.getValue();
-			Q idomEdges = Query.universe().edges(DOMINATOR_TREE_EDGE);
-			Edge idomEdge = idomEdges.betweenStep(Common.toQ(fromNode), Common.toQ(toNode)).eval().edges().one();
-			if(idomEdge == null){
-				idomEdge = Graph.U.createEdge(fromNode, toNode);
-				idomEdge.tag(DOMINATOR_TREE_EDGE);
-				idomEdge.putAttr(XCSG.name, DOMINATOR_TREE_EDGE);
-			}
-			dominanceEdges.add(idomEdge);
+		DominatorTree dominatorTree = needsDominatorTree(relations, false) ? new DominatorTree(ucfg, algorithm) : null;
+		PostDominatorTree postDominatorTree = needsDominatorTree(relations, true) ? new PostDominatorTree(ucfg, algorithm) : null;
+		addDominanceEdges(writer, index, dominatorTree, postDominatorTree, relations);
+
+		return Common.toQ(writer.commit()).eval();
+	}
+
+	/**
+	 * Inserts a control flow edge between two statements of a function and
+	 * updates the memoized dominance relationships of the function
+	 * incrementally instead of recomputing them. A normal control flow edge
+	 * changes the relations of both the normal and the exceptional control
+	 * flow graph, an exceptional control flow edge only those of the
+	 * exceptional control flow graph.
+	 * 
+	 * @param from
+	 * @param to
+	 * @param exceptional if true the edge is an exceptional control flow edge
+	 * @return the created edge
+	 */
+	public static Edge insertControlFlowEdge(Node from, Node to, boolean exceptional) {
+		Node function = getControlFlowFunction(from, to);
+		synchronized(dynamicTrees){
+			// the trees are built from the graph before the change
+			Map<Relation, DynamicDominatorTree> trees = getDynamicTrees(function, exceptional);
+			Edge edge = Graph.U.createEdge(from, to);
+			edge.tag(XCSG.ControlFlow_Edge);
+			if(exceptional){
+				edge.tag(XCSG.ExceptionalControlFlow_Edge);
+			}
+			for(Map.Entry<Relation, DynamicDominatorTree> entry : trees.entrySet()){
+				entry.getValue().insertEdge(from, to);
+				updateDominance(entry.getValue(), entry.getKey().isExceptional());
+			}
+			UniqueEntryExitControlFlowGraph.clearCache();
+			fingerprints.remove(function);
+			return edge;
 		}
-		
-		// compute the dominance frontier
-		DominatorTree.Multimap<Node> dominanceFrontier = dominatorTree.getDominanceFrontiers();
-		for(Entry<Node, Set<Node>> entry : dominanceFrontier.entrySet()){
-			Node fromNode = entry.getKey();
-			for(Node toNode : entry.getValue()){
-				Q dominanceFrontierEdges = Query.universe().edges(DOMINANCE_FRONTIER_EDGE);
-				Edge dominanceFrontierEdge = dominanceFrontierEdges.betweenStep(Common.toQ(fromNode), Common.toQ(toNode)).eval().edges().one();
-				if(dominanceFrontierEdge == null){
-					dominanceFrontierEdge = Graph.U.createEdge(fromNode, toNode);
-					dominanceFrontierEdge.tag(DOMINANCE_FRONTIER_EDGE);
-					dominanceFrontierEdge.putAttr(XCSG.name, DOMINANCE_FRONTIER_EDGE);
-				}
-				dominanceEdges.add(dominanceFrontierEdge);
+	}
+	
+	/**
+	 * Deletes a control flow edge of a function and updates the memoized
+	 * dominance relationships of the function incrementally, see
+	 * {@link #insertControlFlowEdge(Node, Node, boolean)}
+	 * 
+	 * @param edge a control flow edge
+	 */
+	public static void deleteControlFlowEdge(Edge edge) {
+		if(!edge.taggedWith(XCSG.ControlFlow_Edge)){
+			String message = "Edge is not a control flow edge!";
+			IllegalArgumentException e = new IllegalArgumentException(message);
+			Log.error(message, e);
+			throw e;
+		}
+		Node from = edge.from();
+		Node to = edge.to();
+		boolean exceptional = edge.taggedWith(XCSG.ExceptionalControlFlow_Edge);
+		Node function = getControlFlowFunction(from, to);
+		synchronized(dynamicTrees){
+			Map<Relation, DynamicDominatorTree> trees = getDynamicTrees(function, exceptional);
+			Graph.U.delete(edge);
+			for(Map.Entry<Relation, DynamicDominatorTree> entry : trees.entrySet()){
+				entry.getValue().deleteEdge(from, to);
+				updateDominance(entry.getValue(), entry.getKey().isExceptional());
+			}
+			UniqueEntryExitControlFlowGraph.clearCache();
+			fingerprints.remove(function);
+		}
+	}
+	
+	/**
+	 * Returns the function containing both given control flow nodes
+	 */
+	private static Node getControlFlowFunction(Node from, Node to) {
+		Node function = null;
+		if(from.taggedWith(XCSG.ControlFlow_Node) && to.taggedWith(XCSG.ControlFlow_Node)){
+			function = CommonQueries.getContainingFunction(from);
+		}
+		if(function == null || !function.equals(CommonQueries.getContainingFunction(to))){
+			String message = "Nodes are not control flow nodes of the same function!";
+			IllegalArgumentException e = new IllegalArgumentException(message);
+			Log.error(message, e);
+			throw e;
+		}
+		return function;
+	}
+	
+	/**
+	 * Returns the dynamic trees of the given function that a normal or
+	 * exceptional control flow edge changes, by tree relation. A tree is built
+	 * on first use from the current control flow graph, and only if a relation
+	 * derived from it is memoized, the others are computed from the changed
+	 * graph on first use. Must hold the lock on dynamicTrees.
+	 */
+	private static Map<Relation, DynamicDominatorTree> getDynamicTrees(Node function, boolean exceptional) {
+		Map<Relation, DynamicDominatorTree> trees = new EnumMap<Relation, DynamicDominatorTree>(Relation.class);
+		for(Relation treeRelation : dynamicTrees.keySet()){
+			if(exceptional && !treeRelation.isExceptional()){
+				continue; // exceptional edges are not part of the normal graph
+			}
+			DynamicDominatorTree tree = dynamicTrees.get(treeRelation).get(function);
+			if(tree == null && isMemoized(function, treeRelation.isPostDominance(), treeRelation.isExceptional())){
+				Q cfg = treeRelation.isExceptional() ? CommonQueries.excfg(function) : CommonQueries.cfg(function);
+				Graph g = cfg.eval();
+				AtlasSet<Node> roots = cfg.nodes(XCSG.controlFlowRoot).eval().nodes();
+				AtlasSet<Node> exits = cfg.nodes(XCSG.controlFlowExitPoint).eval().nodes();
+				IndexedGraph index = IndexedGraph.build(g.nodes(), g.edges(), roots, exits);
+				tree = treeRelation.isPostDominance() ? DynamicDominatorTree.postDominators(index) : new DynamicDominatorTree(index);
+				dynamicTrees.get(treeRelation).put(function, tree);
+			}
+			if(tree != null){
+				trees.put(treeRelation, tree);
 			}
 		}
+		return trees;
+	}
+	
+	private static boolean isMemoized(Node function, boolean post, boolean exceptional) {
+		for(Relation relation : Relation.values()){
+			if(relation.isPostDominance() == post && relation.isExceptional() == exceptional && functionDominance.get(relation).containsKey(function)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Re-indexes the dominance edges of the normal control flow graph, see
+	 * {@link #updateDominance(DynamicDominatorTree, boolean)}
+	 * 
+	 * @param tree a dynamic dominator or post-dominator tree
+	 */
+	public static void updateDominance(DynamicDominatorTree tree) {
+		updateDominance(tree, false);
+	}
+	
+	/**
+	 * Re-indexes the dominance edges of the nodes whose immediate dominator or
+	 * dominance frontier changed since the last update of the given dynamic
+	 * tree. After edges are inserted into or deleted from a control flow graph
+	 * and applied to its {@link DynamicDominatorTree}, this replaces a full
+	 * {@link #computeDominance(UniqueEntryExitGraph)} with work proportional to
+	 * the part of the tree that changed.
+	 * 
+	 * @param tree a dynamic dominator or post-dominator tree
+	 * @param exceptional if true the tree is of the control flow graph
+	 *        including exceptional control flow and its exceptional relations
+	 *        are re-indexed
+	 */
+	public static void updateDominance(DynamicDominatorTree tree, boolean exceptional) {
+		boolean post = tree.isPostDominance();
+		Relation treeRelation = post ? Relation.POST_DOMINATOR_TREE : Relation.DOMINATOR_TREE;
+		Relation frontierRelation = post ? Relation.POST_DOMINANCE_FRONTIER : Relation.DOMINANCE_FRONTIER;
+		if(exceptional){
+			treeRelation = treeRelation.toExceptional();
+			frontierRelation = frontierRelation.toExceptional();
+		}
+		String treeTag = treeRelation.getEdgeTag();
+		String frontierTag = frontierRelation.getEdgeTag();
+		IndexedGraph index = tree.getIndexedGraph();
+		AtlasSet<Edge> deletedEdges = new AtlasHashSet<Edge>();
+		AtlasSet<Edge> createdEdges = new AtlasHashSet<Edge>();
 		
-		// compute the post-dominator tree (postdom)
-		PostDominatorTree postDominatorTree = new PostDominatorTree(ucfg);
-		for(Entry<Node,Node> entry : postDominatorTree.getIdoms().entrySet()) {
-			Node fromNode = entry.getValue();
-			Node toNode = entry.getKey();
-			Q postdomEdges = Query.universe().edges(POST_DOMINATOR_TREE_EDGE);
-			Edge postdomEdge = postdomEdges.betweenStep(Common.toQ(fromNode), Common.toQ(toNode)).eval().edges().one();
-			if(postdomEdge == null){
-				postdomEdge = Graph.U.createEdge(fromNode, toNode);
-				postdomEdge.tag(POST_DOMINATOR_TREE_EDGE);
-				postdomEdge.putAttr(XCSG.name, POST_DOMINATOR_TREE_EDGE);
-			}
-			dominanceEdges.add(postdomEdge);
+		// bind the virtual entry and exit to the master nodes of the function
+		// as full indexing does, see commitFunctionDominance
+		Node entryNode = null;
+		Node exitNode = null;
+		Node function = getFunction(index);
+		if(function != null){
+			entryNode = MasterNodeRegistry.getMasterEntry(function);
+			exitNode = MasterNodeRegistry.getMasterExit(function);
 		}
 		
-		// compute the post-dominance frontier
-		PostDominatorTree.Multimap<Node> postDominanceFrontier = postDominatorTree.getDominanceFrontiers();
-		for(Entry<Node, Set<Node>> entry : postDominanceFrontier.entrySet()){
-			Node fromNode = entry.getKey();
-			for(Node toNode : entry.getValue()){
-				Q dominanceFrontierEdges = Query.universe().edges(POST_DOMINANCE_FRONTIER_EDGE);
-				Edge dominanceFrontierEdge = dominanceFrontierEdges.betweenStep(Common.toQ(fromNode), Common.toQ(toNode)).eval().edges().one();
-				if(dominanceFrontierEdge == null){
-					dominanceFrontierEdge = Graph.U.createEdge(fromNode, toNode);
-					dominanceFrontierEdge.tag(POST_DOMINANCE_FRONTIER_EDGE);
-					dominanceFrontierEdge.putAttr(XCSG.name, POST_DOMINANCE_FRONTIER_EDGE);
+		for(int id : tree.drainChangedNodes()){
+			Node node = getNode(index, id, entryNode, exitNode);
+			if(node == null){
+				continue; // unbound virtual entry or exit
+			}
+			
+			// idom edges point from a node to its idom, ipdom edges point from
+			// the ipdom to the node
+			AtlasSet<Edge> staleEdges = new AtlasHashSet<Edge>(post ? node.in(treeTag) : node.out(treeTag));
+			staleEdges.addAll(node.out(frontierTag));
+			for(Edge staleEdge : staleEdges){
+				deletedEdges.add(staleEdge);
+				Graph.U.delete(staleEdge);
+			}
+			
+			Node dominator = getNode(index, tree.getIdom(id), entryNode, exitNode);
+			if(dominator != null){
+				Edge treeEdge = post ? Graph.U.createEdge(dominator, node) : Graph.U.createEdge(node, dominator);
+				treeEdge.tag(treeTag);
+				treeEdge.putAttr(XCSG.name, treeTag);
+				createdEdges.add(treeEdge);
+			}
+			for(int frontier : tree.getDominanceFrontier(id)){
+				Node frontierNode = getNode(index, frontier, entryNode, exitNode);
+				if(frontierNode == null){
+					continue;
 				}
-				dominanceEdges.add(dominanceFrontierEdge);
+				Edge frontierEdge = Graph.U.createEdge(node, frontierNode);
+				frontierEdge.tag(frontierTag);
+				frontierEdge.putAttr(XCSG.name, frontierTag);
+				createdEdges.add(frontierEdge);
 			}
 		}
 		
-		return Common.toQ(dominanceEdges).eval();
+		if(function != null){
+			updateRelations(function, EnumSet.of(treeRelation, frontierRelation), deletedEdges, createdEdges);
+		}
+	}
+	
+	/**
+	 * Replaces the memoized edges of the given relations of a function with
+	 * its memoized edges minus the deleted edges plus the created edges of an
+	 * update. Relations that are not memoized yet are left to be computed from
+	 * the updated graph on first use, and other relations are not touched.
+	 * Dependence graphs built from the post-dominance frontier are discarded.
+	 */
+	private static void updateRelations(Node function, EnumSet<Relation> relations, AtlasSet<Edge> deletedEdges, AtlasSet<Edge> createdEdges) {
+		boolean post = false;
+		synchronized(functionDominance){
+			for(Relation relation : relations){
+				post |= relation.isPostDominance();
+				Graph dominance = functionDominance.get(relation).get(function);
+				if(dominance == null){
+					continue;
+				}
+				AtlasSet<Edge> edges = new AtlasHashSet<Edge>(dominance.edges());
+				for(Edge deletedEdge : deletedEdges){
+					edges.remove(deletedEdge);
+				}
+				edges.addAll(createdEdges);
+				functionDominance.get(relation).put(function, Common.toQ(edges).edges(relation.getEdgeTag()).retainEdges().eval());
+			}
+		}
+		if(post){
+			DependenceGraphCache.invalidate(function);
+		}
+	}
+	
+	/**
+	 * Returns the function containing the nodes of the given graph, or null
+	 */
+	private static Node getFunction(IndexedGraph index) {
+		for(int id=0; id<index.size(); id++){
+			Node node = index.getNode(id);
+			if(node != null){
+				return CommonQueries.getContainingFunction(node);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the node with the given id, the given entry or exit node for
+	 * the virtual entry or exit, or null for -1
+	 */
+	private static Node getNode(IndexedGraph index, int id, Node entryNode, Node exitNode) {
+		if(id == -1){
+			return null;
+		}
+		Node node = index.getNode(id);
+		if(node == null){
+			if(id == index.getEntry()){
+				return entryNode;
+			} else if(id == index.getExit()){
+				return exitNode;
+			}
+		}
+		return node;
 	}
 
 }
\ No newline at end of file
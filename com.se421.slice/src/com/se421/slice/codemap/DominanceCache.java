@@ -0,0 +1,402 @@
+package com.se421.slice.codemap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Graph;
+import com.ensoftcorp.atlas.core.db.graph.GraphElement.NodeDirection;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.Activator;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.log.Log;
+
+/**
+ * A persistent cache of {@link DominanceRecord}s keyed by a fingerprint of the
+ * control flow graph structure, so re-indexing a workspace only computes the
+ * dominance relationships of functions whose control flow changed.
+ *
+ * Node ids are assigned in a canonical order ({@link #canonicalOrder(Graph,
+ * AtlasSet)}) that does not depend on graph database addresses, and the
+ * fingerprint hashes the adjacency of the graph in that order. Dominance is a
+ * function of the adjacency alone, so a record found under a fingerprint is
+ * correct for any graph with that fingerprint.
+ *
+ * The cache file is a header (magic, version, record count) followed by each
+ * fingerprint and its record. Lookups and insertions are thread safe. The file
+ * can also be read without loading it into the heap with a
+ * {@link MappedDominanceStore}. A mapped file cannot be deleted on every
+ * platform, so each save writes a new generation of the file rather than
+ * replacing the current one, and older generations are deleted once they can
+ * be.
+ *
+ * Only the four relations of the normal control flow graph are stored. Control
+ * dependence is not stored separately, it is read from the post-dominance
+ * frontier arrays it is built from, and data dependence is out of scope.
+ */
+public class DominanceCache {
+
+	/**
+	 * Prefix and suffix of the cache file names in the plugin state location,
+	 * the generation of the file goes between them
+	 */
+	public static final String FILE_PREFIX = "dominance.";
+	public static final String FILE_SUFFIX = ".cache";
+
+	static final int MAGIC = 0x444F4D43; // DOMC
+	static final int VERSION = 1;
+
+	/**
+	 * The cache file
+	 */
+	private final File file;
+
+	/**
+	 * Records by fingerprint
+	 */
+	private final Map<Fingerprint, DominanceRecord> records = new ConcurrentHashMap<Fingerprint, DominanceRecord>();
+
+	/**
+	 * Fingerprints looked up or inserted since the cache was opened
+	 */
+	private final Set<Fingerprint> used = Collections.newSetFromMap(new ConcurrentHashMap<Fingerprint, Boolean>());
+
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	private DominanceCache(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Returns the current cache file in the plugin state location
+	 * @return
+	 */
+	public static File getDefaultFile() {
+		return getCurrentFile(Activator.getDefault().getStateLocation().toFile());
+	}
+
+	/**
+	 * Returns the latest generation of the cache file in the given directory,
+	 * or the (missing) first generation if there is none
+	 *
+	 * @param directory
+	 * @return
+	 */
+	public static File getCurrentFile(File directory) {
+		File current = new File(directory, FILE_PREFIX + 0 + FILE_SUFFIX);
+		long currentGeneration = -1;
+		File[] files = directory.listFiles();
+		if(files != null){
+			for(File file : files){
+				long generation = getGeneration(file);
+				if(generation > currentGeneration){
+					current = file;
+					currentGeneration = generation;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the generation of the given cache file, -1 if it is not an
+	 * existing cache file
+	 */
+	private static long getGeneration(File file) {
+		String name = file.getName();
+		if(!file.isFile() || !name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX) || name.length() <= FILE_PREFIX.length() + FILE_SUFFIX.length()){
+			return -1;
+		}
+		try {
+			return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+		} catch (NumberFormatException e){
+			return -1;
+		}
+	}
+
+	/**
+	 * Opens the cache stored in the given file. A missing, outdated or
+	 * unreadable file yields an empty cache.
+	 *
+	 * @param file
+	 * @return
+	 */
+	public static DominanceCache open(File file) {
+		DominanceCache cache = new DominanceCache(file);
+		if(file.exists()){
+			try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				if(input.readInt() == MAGIC && input.readInt() == VERSION){
+					int count = input.readInt();
+					for(int i=0; i<count; i++){
+						Fingerprint fingerprint = new Fingerprint(input.readLong(), input.readLong());
+						cache.records.put(fingerprint, DominanceRecord.read(input));
+					}
+				}
+			} catch (IOException | RuntimeException e){
+				// a corrupt file can fail with an underflow or a bad array size
+				Log.warning("Error reading dominance cache, recomputing dominance", e);
+				cache.records.clear();
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Returns the cached record for the given fingerprint or null
+	 *
+	 * @param fingerprint
+	 * @return
+	 */
+	public DominanceRecord get(Fingerprint fingerprint) {
+		DominanceRecord record = records.get(fingerprint);
+		if(record != null){
+			used.add(fingerprint);
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return record;
+	}
+
+	/**
+	 * Caches the record for the given fingerprint
+	 *
+	 * @param fingerprint
+	 * @param record
+	 */
+	public void put(Fingerprint fingerprint, DominanceRecord record) {
+		records.put(fingerprint, record);
+		used.add(fingerprint);
+	}
+
+	/**
+	 * Returns the number of lookups that found a record
+	 * @return
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a record
+	 * @return
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Writes the next generation of the cache file and deletes the older
+	 * generations that are no longer mapped
+	 *
+	 * @param retainUnused
+	 *            if false, records not looked up or inserted since the cache
+	 *            was opened (functions that changed or no longer exist) are
+	 *            dropped
+	 * @return the written file, or null if it could not be written
+	 */
+	public File save(boolean retainUnused) {
+		List<Fingerprint> fingerprints = new ArrayList<Fingerprint>();
+		for(Fingerprint fingerprint : records.keySet()){
+			if(retainUnused || used.contains(fingerprint)){
+				fingerprints.add(fingerprint);
+			}
+		}
+		File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		long generation = getGeneration(getCurrentFile(directory)) + 1;
+		File next = new File(directory, FILE_PREFIX + generation + FILE_SUFFIX);
+		File temporary = new File(next.getPath() + ".tmp");
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(fingerprints.size());
+				for(Fingerprint fingerprint : fingerprints){
+					output.writeLong(fingerprint.high);
+					output.writeLong(fingerprint.low);
+					records.get(fingerprint).write(output);
+				}
+			}
+			if(!temporary.renameTo(next)){
+				throw new IOException("Could not rename " + temporary + " to " + next);
+			}
+		} catch (IOException e){
+			Log.warning("Error writing dominance cache", e);
+			temporary.delete();
+			return null;
+		}
+		File[] files = directory.listFiles();
+		if(files != null){
+			for(File old : files){
+				long oldGeneration = getGeneration(old);
+				if(oldGeneration >= 0 && oldGeneration < generation){
+					// a generation that is still mapped is deleted by a later save
+					old.delete();
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Orders the nodes of a control flow graph without depending on graph
+	 * database addresses: a depth-first preorder from the roots, taking roots
+	 * and successors in order of their names (and successor edges first by
+	 * condition value), followed by any unreachable nodes in name order.
+	 *
+	 * @param cfg
+	 * @param roots
+	 * @return
+	 */
+	public static List<Node> canonicalOrder(final Graph cfg, AtlasSet<Node> roots) {
+		List<Node> order = new ArrayList<Node>((int) cfg.nodes().size());
+		Set<Node> visited = new HashSet<Node>();
+		List<Node> stack = new ArrayList<Node>();
+		List<Node> sortedRoots = sortByName(roots);
+		Collections.reverse(sortedRoots);
+		stack.addAll(sortedRoots);
+		while(!stack.isEmpty()){
+			Node node = stack.remove(stack.size() - 1);
+			if(!visited.add(node)){
+				continue;
+			}
+			order.add(node);
+			List<Edge> successors = new ArrayList<Edge>();
+			for(Edge edge : cfg.edges(node, NodeDirection.OUT)){
+				successors.add(edge);
+			}
+			Collections.sort(successors, new Comparator<Edge>(){
+				@Override
+				public int compare(Edge a, Edge b) {
+					int result = label(a).compareTo(label(b));
+					return result != 0 ? result : label(a.to()).compareTo(label(b.to()));
+				}
+			});
+			// push in reverse so the first successor is visited first
+			for(int i=successors.size()-1; i>=0; i--){
+				Node successor = successors.get(i).to();
+				if(!visited.contains(successor)){
+					stack.add(successor);
+				}
+			}
+		}
+		for(Node node : sortByName(cfg.nodes())){
+			if(visited.add(node)){
+				order.add(node);
+			}
+		}
+		return order;
+	}
+
+	private static List<Node> sortByName(AtlasSet<Node> nodes) {
+		List<Node> sorted = new ArrayList<Node>((int) nodes.size());
+		for(Node node : nodes){
+			sorted.add(node);
+		}
+		Collections.sort(sorted, new Comparator<Node>(){
+			@Override
+			public int compare(Node a, Node b) {
+				return label(a).compareTo(label(b));
+			}
+		});
+		return sorted;
+	}
+
+	private static String label(Node node) {
+		Object name = node.getAttr(XCSG.name);
+		return name == null ? "" : name.toString();
+	}
+
+	private static String label(Edge edge) {
+		Object conditionValue = edge.getAttr(XCSG.conditionValue);
+		return conditionValue == null ? "" : conditionValue.toString();
+	}
+
+	/**
+	 * Returns the fingerprint of the adjacency of the given graph
+	 *
+	 * @param index
+	 * @return
+	 */
+	public static Fingerprint fingerprint(IndexedGraph index) {
+		long high = 0xCBF29CE484222325L;
+		long low = VERSION;
+		int[] values = new int[]{ index.size(), index.getEntry(), index.getExit() };
+		for(int value : values){
+			high = (high ^ value) * 0x100000001B3L;
+			low = mix(low + value);
+		}
+		for(int id=0; id<index.size(); id++){
+			int count = index.getSuccessorCount(id);
+			high = (high ^ count) * 0x100000001B3L;
+			low = mix(low + count);
+			for(int i=0; i<count; i++){
+				int successor = index.getSuccessor(id, i);
+				high = (high ^ successor) * 0x100000001B3L;
+				low = mix(low + successor);
+			}
+		}
+		return new Fingerprint(high, low);
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return value ^ (value >>> 33);
+	}
+
+	/**
+	 * A 128 bit hash of a graph's adjacency
+	 */
+	public static final class Fingerprint {
+		private final long high;
+		private final long low;
+
+		Fingerprint(long high, long low) {
+			this.high = high;
+			this.low = low;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (low ^ (low >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj){
+				return true;
+			}
+			if(!(obj instanceof Fingerprint)){
+				return false;
+			}
+			Fingerprint other = (Fingerprint) obj;
+			return high == other.high && low == other.low;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%016x%016x", high, low);
+		}
+	}
+
+}
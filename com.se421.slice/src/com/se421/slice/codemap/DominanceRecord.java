@@ -0,0 +1,252 @@
+package com.se421.slice.codemap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import com.se421.slice.analysis.utilities.dominance.DominatorTree;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.analysis.utilities.dominance.PostDominatorTree;
+
+/**
+ * The dominance relationships of one function by node id: the immediate
+ * dominator and post-dominator of each node and the dominance and
+ * post-dominance frontiers in compressed sparse row form. Node ids are the ids
+ * of the {@link IndexedGraph} the trees were computed on.
+ *
+ * The arrays are held in {@link IntBuffer}s that either wrap heap arrays or
+ * are zero-copy views of a memory mapped file, see {@link #map(ByteBuffer)}.
+ * Records are immutable.
+ */
+public class DominanceRecord {
+
+	/**
+	 * The number of node ids
+	 */
+	private final int size;
+
+	/**
+	 * Immediate dominator and post-dominator by node id, -1 for none
+	 */
+	private final IntBuffer idoms;
+	private final IntBuffer ipdoms;
+
+	/**
+	 * The dominance frontier of node v is
+	 * frontiers[frontierOffsets[v]] to frontiers[frontierOffsets[v+1]-1]
+	 */
+	private final IntBuffer frontierOffsets;
+	private final IntBuffer frontiers;
+
+	/**
+	 * The post-dominance frontier of node v is
+	 * postFrontiers[postFrontierOffsets[v]] to
+	 * postFrontiers[postFrontierOffsets[v+1]-1]
+	 */
+	private final IntBuffer postFrontierOffsets;
+	private final IntBuffer postFrontiers;
+
+	private DominanceRecord(int size, IntBuffer idoms, IntBuffer ipdoms, IntBuffer frontierOffsets, IntBuffer frontiers, IntBuffer postFrontierOffsets, IntBuffer postFrontiers) {
+		this.size = size;
+		this.idoms = idoms;
+		this.ipdoms = ipdoms;
+		this.frontierOffsets = frontierOffsets;
+		this.frontiers = frontiers;
+		this.postFrontierOffsets = postFrontierOffsets;
+		this.postFrontiers = postFrontiers;
+	}
+
+	/**
+	 * Captures the relationships of a dominator tree and a post-dominator tree
+	 * computed on the same graph
+	 *
+	 * @param dominatorTree
+	 * @param postDominatorTree
+	 * @return
+	 */
+	public static DominanceRecord of(DominatorTree dominatorTree, PostDominatorTree postDominatorTree) {
+		int size = dominatorTree.getIndexedGraph().size();
+		int[] idoms = new int[size];
+		int[] ipdoms = new int[size];
+		int[][] df = new int[size][];
+		int[][] pdf = new int[size][];
+		for(int id=0; id<size; id++){
+			idoms[id] = dominatorTree.getIdom(id);
+			ipdoms[id] = postDominatorTree.getIdom(id);
+			df[id] = dominatorTree.getDominanceFrontier(id);
+			pdf[id] = postDominatorTree.getDominanceFrontier(id);
+		}
+		int[] frontierOffsets = new int[size + 1];
+		int[] postFrontierOffsets = new int[size + 1];
+		int[] frontiers = flatten(df, frontierOffsets);
+		int[] postFrontiers = flatten(pdf, postFrontierOffsets);
+		return new DominanceRecord(size, IntBuffer.wrap(idoms), IntBuffer.wrap(ipdoms), IntBuffer.wrap(frontierOffsets), IntBuffer.wrap(frontiers), IntBuffer.wrap(postFrontierOffsets), IntBuffer.wrap(postFrontiers));
+	}
+
+	private static int[] flatten(int[][] lists, int[] offsets) {
+		for(int id=0; id<lists.length; id++){
+			offsets[id + 1] = offsets[id] + lists[id].length;
+		}
+		int[] targets = new int[offsets[lists.length]];
+		for(int id=0; id<lists.length; id++){
+			System.arraycopy(lists[id], 0, targets, offsets[id], lists[id].length);
+		}
+		return targets;
+	}
+
+	/**
+	 * Returns the number of node ids
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the id of the immediate dominator of the given node, -1 for none
+	 * @param id
+	 * @return
+	 */
+	public int getIdom(int id) {
+		return idoms.get(id);
+	}
+
+	/**
+	 * Returns the id of the immediate post-dominator of the given node, -1 for
+	 * none
+	 * @param id
+	 * @return
+	 */
+	public int getIpdom(int id) {
+		return ipdoms.get(id);
+	}
+
+	/**
+	 * Returns the ids of the dominance frontier of the given node
+	 * @param id
+	 * @return
+	 */
+	public int[] getDominanceFrontier(int id) {
+		return slice(frontiers, frontierOffsets, id);
+	}
+
+	/**
+	 * Returns the ids of the post-dominance frontier of the given node. These
+	 * are the nodes the given node is control dependent on.
+	 * @param id
+	 * @return
+	 */
+	public int[] getPostDominanceFrontier(int id) {
+		return slice(postFrontiers, postFrontierOffsets, id);
+	}
+
+	private static int[] slice(IntBuffer targets, IntBuffer offsets, int id) {
+		int start = offsets.get(id);
+		int[] result = new int[offsets.get(id + 1) - start];
+		for(int i=0; i<result.length; i++){
+			result[i] = targets.get(start + i);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the record as size, idoms, ipdoms, frontier offsets and targets,
+	 * then post-dominance frontier offsets and targets
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	public void write(DataOutput output) throws IOException {
+		output.writeInt(size);
+		writeInts(output, idoms);
+		writeInts(output, ipdoms);
+		writeInts(output, frontierOffsets);
+		writeInts(output, frontiers);
+		writeInts(output, postFrontierOffsets);
+		writeInts(output, postFrontiers);
+	}
+
+	/**
+	 * Reads a record written by {@link #write(DataOutput)} into the heap
+	 *
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	public static DominanceRecord read(DataInput input) throws IOException {
+		int size = input.readInt();
+		IntBuffer idoms = readInts(input, size);
+		IntBuffer ipdoms = readInts(input, size);
+		IntBuffer frontierOffsets = readInts(input, size + 1);
+		IntBuffer frontiers = readInts(input, frontierOffsets.get(size));
+		IntBuffer postFrontierOffsets = readInts(input, size + 1);
+		IntBuffer postFrontiers = readInts(input, postFrontierOffsets.get(size));
+		return new DominanceRecord(size, idoms, ipdoms, frontierOffsets, frontiers, postFrontierOffsets, postFrontiers);
+	}
+
+	/**
+	 * Returns a view of a record written by {@link #write(DataOutput)} that
+	 * starts at the position of the given buffer, without copying the arrays.
+	 * Advances the position of the buffer past the record.
+	 *
+	 * @param buffer
+	 *            a big-endian buffer, typically a memory mapped file
+	 * @return
+	 */
+	public static DominanceRecord map(ByteBuffer buffer) {
+		int size = buffer.getInt();
+		IntBuffer idoms = viewInts(buffer, size);
+		IntBuffer ipdoms = viewInts(buffer, size);
+		IntBuffer frontierOffsets = viewInts(buffer, size + 1);
+		IntBuffer frontiers = viewInts(buffer, frontierOffsets.get(size));
+		IntBuffer postFrontierOffsets = viewInts(buffer, size + 1);
+		IntBuffer postFrontiers = viewInts(buffer, postFrontierOffsets.get(size));
+		return new DominanceRecord(size, idoms, ipdoms, frontierOffsets, frontiers, postFrontierOffsets, postFrontiers);
+	}
+
+	/**
+	 * Advances the position of the given buffer past a record written by
+	 * {@link #write(DataOutput)} without creating any views
+	 *
+	 * @param buffer
+	 * @throws IllegalArgumentException
+	 *             if the record is corrupt
+	 * @throws IndexOutOfBoundsException
+	 *             if the record is truncated
+	 */
+	public static void skip(ByteBuffer buffer) {
+		int size = buffer.getInt();
+		if(size < 0){
+			throw new IllegalArgumentException("Corrupt dominance record size: " + size);
+		}
+		int start = buffer.position();
+		int frontierCount = buffer.getInt(start + (3 * size) * 4);
+		int postStart = start + (3 * size + 1 + frontierCount) * 4;
+		int postFrontierCount = buffer.getInt(postStart + size * 4);
+		buffer.position(postStart + (size + 1 + postFrontierCount) * 4);
+	}
+
+	private static void writeInts(DataOutput output, IntBuffer values) throws IOException {
+		for(int i=0; i<values.limit(); i++){
+			output.writeInt(values.get(i));
+		}
+	}
+
+	private static IntBuffer readInts(DataInput input, int length) throws IOException {
+		int[] values = new int[length];
+		for(int i=0; i<length; i++){
+			values[i] = input.readInt();
+		}
+		return IntBuffer.wrap(values);
+	}
+
+	private static IntBuffer viewInts(ByteBuffer buffer, int length) {
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length * 4);
+		buffer.position(buffer.position() + length * 4);
+		return slice.asIntBuffer();
+	}
+
+}
@@ -0,0 +1,384 @@
+package com.se421.slice.codemap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.log.Log;
+
+/**
+ * Schedules per-function indexing work across a pool of worker threads.
+ *
+ * Each function is split into a compute phase, which must not write to the
+ * graph database and runs on a work-stealing {@link ForkJoinPool}, and a commit
+ * phase, which runs serially on the calling thread as computations complete.
+ * Function sizes are heavily skewed, so functions are dispatched in decreasing
+ * order of their estimated cost: the largest functions start first and idle
+ * workers take the remaining small functions, instead of one worker finishing
+ * with the largest function alone.
+ */
+public class IndexingScheduler {
+
+	/**
+	 * The per-function work of an indexing stage
+	 *
+	 * @param <R>
+	 *            the result of the compute phase
+	 */
+	public static interface FunctionTask<R> {
+
+		/**
+		 * Returns an estimate of the cost of computing the given function, such
+		 * as the number of nodes in its flow graphs. Called serially on the
+		 * scheduling thread.
+		 *
+		 * @param function
+		 * @return
+		 */
+		public long estimateCost(Node function);
+
+		/**
+		 * Computes the results for the given function. Called on a worker
+		 * thread and must not write to the graph database.
+		 *
+		 * @param function
+		 * @return the results to commit, or null if there is nothing to commit
+		 * @throws Exception
+		 */
+		public R compute(Node function) throws Exception;
+
+		/**
+		 * Writes the computed results for the given function to the graph
+		 * database. Called serially on the scheduling thread.
+		 *
+		 * @param function
+		 * @param result
+		 * @throws Exception
+		 */
+		public void commit(Node function, R result) throws Exception;
+	}
+
+	/**
+	 * Timing of a scheduled run
+	 */
+	public static class Report {
+		private int functions = 0;
+		private int parallelism;
+		private long wallTime = 0;
+		private long totalTime = 0;
+		private long commitTime = 0;
+		private long longestFunctionTime = 0;
+		private Node longestFunction = null;
+		private boolean canceled = false;
+
+		private Report(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+		private void record(Node function, long computeTime, long commitTime) {
+			functions++;
+			this.totalTime += computeTime + commitTime;
+			this.commitTime += commitTime;
+			if(computeTime + commitTime > longestFunctionTime){
+				longestFunctionTime = computeTime + commitTime;
+				longestFunction = function;
+			}
+		}
+
+		/**
+		 * Returns the number of functions completed
+		 * @return
+		 */
+		public int getFunctions() {
+			return functions;
+		}
+
+		/**
+		 * Returns the number of worker threads
+		 * @return
+		 */
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		/**
+		 * Returns the elapsed time of the run in nanoseconds
+		 * @return
+		 */
+		public long getWallTime() {
+			return wallTime;
+		}
+
+		/**
+		 * Returns the sum of the compute and commit times of every function in
+		 * nanoseconds, the time a sequential run would take
+		 * @return
+		 */
+		public long getTotalTime() {
+			return totalTime;
+		}
+
+		/**
+		 * Returns the critical path in nanoseconds: the larger of the longest
+		 * single function and the serialized commit phase. No schedule can
+		 * finish faster.
+		 * @return
+		 */
+		public long getCriticalPathTime() {
+			return Math.max(longestFunctionTime, commitTime);
+		}
+
+		/**
+		 * Returns the function with the longest compute and commit time
+		 * @return
+		 */
+		public Node getLongestFunction() {
+			return longestFunction;
+		}
+
+		/**
+		 * Returns the fraction of the available worker time spent on useful
+		 * work, total time / (wall time * parallelism)
+		 * @return
+		 */
+		public double getEfficiency() {
+			if(wallTime == 0){
+				return 1.0;
+			}
+			return ((double) totalTime) / (((double) wallTime) * parallelism);
+		}
+
+		/**
+		 * Returns true if the run was canceled before every function completed
+		 * @return
+		 */
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		@Override
+		public String toString() {
+			return functions + " functions on " + parallelism + " workers: wall " + millis(wallTime)
+					+ " ms, total " + millis(totalTime) + " ms, critical path " + millis(getCriticalPathTime())
+					+ " ms (longest function " + millis(longestFunctionTime) + " ms, commits " + millis(commitTime)
+					+ " ms), efficiency " + Math.round(getEfficiency() * 100.0) + "%";
+		}
+
+		private static long millis(long nanos) {
+			return TimeUnit.NANOSECONDS.toMillis(nanos);
+		}
+	}
+
+	/**
+	 * The result of computing one function
+	 */
+	private static class Computed<R> {
+		private final Node function;
+		private final R result;
+		private final long computeTime;
+
+		private Computed(Node function, R result, long computeTime) {
+			this.function = function;
+			this.result = result;
+			this.computeTime = computeTime;
+		}
+	}
+
+	private IndexingScheduler() {}
+
+	/**
+	 * Runs the given task over every function, largest estimated cost first,
+	 * with the given number of workers. A parallelism of 1 runs every phase
+	 * on the calling thread. Progress is reported to the monitor as each
+	 * function is committed and cancellation of the monitor stops the run.
+	 *
+	 * @param name
+	 *            a description of the stage for logging
+	 * @param functions
+	 * @param task
+	 * @param parallelism
+	 * @param monitor
+	 * @return the timing of the run
+	 */
+	public static <R> Report run(final String name, AtlasSet<Node> functions, final FunctionTask<R> task, int parallelism, IProgressMonitor monitor) {
+		long start = System.nanoTime();
+		Report report = new Report(Math.max(1, parallelism));
+		SubMonitor progress = SubMonitor.convert(monitor, (int) functions.size());
+		Node[] order = largestFirst(functions, task);
+		if(parallelism <= 1){
+			for(Node function : order){
+				long computeStart = System.nanoTime();
+				R result = compute(name, task, function);
+				long commitStart = System.nanoTime();
+				commit(name, task, function, result);
+				report.record(function, commitStart - computeStart, System.nanoTime() - commitStart);
+				progress.worked(1);
+				if(monitor.isCanceled()){
+					report.canceled = true;
+					break;
+				}
+			}
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				// the pool takes external submissions in order, so the
+				// largest functions are dispatched first and idle workers
+				// steal whatever remains
+				CompletionService<Computed<R>> completed = new ExecutorCompletionService<Computed<R>>(pool);
+				for(final Node function : order){
+					completed.submit(new Callable<Computed<R>>(){
+						@Override
+						public Computed<R> call() throws Exception {
+							long computeStart = System.nanoTime();
+							R result = compute(name, task, function);
+							return new Computed<R>(function, result, System.nanoTime() - computeStart);
+						}
+					});
+				}
+				for(int i=0; i<order.length; i++){
+					Computed<R> computed;
+					try {
+						computed = completed.take().get();
+					} catch (ExecutionException e){
+						// skip the failed function and keep draining the others
+						Log.error("Error computing " + name, e);
+						progress.worked(1);
+						continue;
+					}
+					long commitStart = System.nanoTime();
+					commit(name, task, computed.function, computed.result);
+					report.record(computed.function, computed.computeTime, System.nanoTime() - commitStart);
+					progress.worked(1);
+					if(monitor.isCanceled()){
+						report.canceled = true;
+						break;
+					}
+				}
+			} catch (InterruptedException e){
+				Log.warning("Interrupted: " + name, e);
+				report.canceled = true;
+				Thread.currentThread().interrupt();
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+		report.wallTime = System.nanoTime() - start;
+		if(report.canceled){
+			Log.warning("Cancelled: " + name);
+		}
+		Log.info(name + ": " + report);
+		return report;
+	}
+
+	/**
+	 * Returns the number of control flow nodes in the given function, an
+	 * estimate of the cost of analyzing its control flow graph
+	 *
+	 * @param function
+	 * @return
+	 */
+	public static long controlFlowSize(Node function) {
+		return containedCount(function, XCSG.ControlFlow_Node);
+	}
+
+	/**
+	 * Returns the number of data flow nodes in the given function, an
+	 * estimate of the cost of analyzing its data flow graph
+	 *
+	 * @param function
+	 * @return
+	 */
+	public static long dataFlowSize(Node function) {
+		return containedCount(function, XCSG.DataFlow_Node);
+	}
+
+	/**
+	 * Counts the nodes with the given tag in the {@link XCSG#Contains} tree of
+	 * the given function, without nested functions and types. Estimates are
+	 * taken serially before dispatch, so this walks the containment edges
+	 * instead of evaluating a query.
+	 */
+	private static long containedCount(Node function, String tag) {
+		long count = 0;
+		Deque<Node> stack = new ArrayDeque<Node>();
+		stack.push(function);
+		while(!stack.isEmpty()){
+			for(Edge containsEdge : stack.pop().out(XCSG.Contains)){
+				Node child = containsEdge.to();
+				if(child.taggedWith(tag)){
+					count++;
+				}
+				if(!child.taggedWith(XCSG.Function) && !child.taggedWith(XCSG.Type)){
+					stack.push(child);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Orders the functions by decreasing estimated cost
+	 */
+	private static <R> Node[] largestFirst(AtlasSet<Node> functions, FunctionTask<R> task) {
+		final Node[] order = new Node[(int) functions.size()];
+		final long[] costs = new long[order.length];
+		Integer[] positions = new Integer[order.length];
+		int i = 0;
+		for(Node function : functions){
+			order[i] = function;
+			costs[i] = task.estimateCost(function);
+			positions[i] = i;
+			i++;
+		}
+		Arrays.sort(positions, new Comparator<Integer>(){
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(costs[b], costs[a]);
+			}
+		});
+		Node[] result = new Node[order.length];
+		for(int j=0; j<positions.length; j++){
+			result[j] = order[positions[j]];
+		}
+		return result;
+	}
+
+	private static <R> R compute(String name, FunctionTask<R> task, Node function) {
+		try {
+			return task.compute(function);
+		} catch (InterruptedException e){
+			// the run was canceled while this function was computing
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (Exception e){
+			Log.error("Error computing " + name, e);
+			return null;
+		}
+	}
+
+	private static <R> void commit(String name, FunctionTask<R> task, Node function, R result) {
+		if(result == null){
+			return;
+		}
+		try {
+			task.commit(function, result);
+		} catch (Exception e){
+			Log.error("Error indexing " + name, e);
+		}
+	}
+
+}
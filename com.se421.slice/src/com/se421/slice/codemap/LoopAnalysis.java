@@ -0,0 +1,125 @@
+package com.se421.slice.codemap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ensoftcorp.atlas.core.db.graph.Graph;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
+import com.ensoftcorp.atlas.core.query.Q;
+import com.ensoftcorp.atlas.core.xcsg.XCSG;
+import com.se421.slice.analysis.utilities.CommonQueries;
+import com.se421.slice.analysis.utilities.dominance.DominatorTree;
+import com.se421.slice.analysis.utilities.dominance.IndexedGraph;
+import com.se421.slice.analysis.utilities.dominance.LoopNestingForest;
+
+/**
+ * Primary interface for loop nesting relationships. The loop nesting forest
+ * of a function's control flow graph is computed on first use and cached
+ * until the next indexing.
+ */
+public class LoopAnalysis {
+
+	/**
+	 * Loop nesting forests by function
+	 */
+	private static final ConcurrentHashMap<Node, LoopNestingForest> forests = new ConcurrentHashMap<Node, LoopNestingForest>();
+
+	public LoopAnalysis() {}
+
+	/**
+	 * Returns the (cached) loop nesting forest of the given function's control
+	 * flow graph
+	 * 
+	 * @param function
+	 * @return
+	 */
+	public static LoopNestingForest getLoopNestingForest(Node function) {
+		LoopNestingForest forest = forests.get(function);
+		if(forest == null){
+			forest = computeLoopNestingForest(function);
+			LoopNestingForest previous = forests.putIfAbsent(function, forest);
+			if(previous != null){
+				forest = previous;
+			}
+		}
+		return forest;
+	}
+
+	/**
+	 * Computes the loop nesting forest of the given function's control flow
+	 * graph without caching it
+	 * 
+	 * @param function
+	 * @return
+	 */
+	public static LoopNestingForest computeLoopNestingForest(Node function) {
+		Q cfg = CommonQueries.cfg(function);
+		Graph g = cfg.eval();
+		AtlasSet<Node> roots = cfg.nodes(XCSG.controlFlowRoot).eval().nodes();
+		AtlasSet<Node> exits = cfg.nodes(XCSG.controlFlowExitPoint).eval().nodes();
+		IndexedGraph index = IndexedGraph.build(g.nodes(), g.edges(), roots, exits);
+		return new LoopNestingForest(new DominatorTree(index));
+	}
+
+	/**
+	 * Returns the header of the innermost loop containing the given statement
+	 * (or the statement containing the given data flow node), null if it is
+	 * not in a loop
+	 * 
+	 * @param statement
+	 * @return
+	 */
+	public static Node getLoopHeader(Node statement) {
+		statement = toControlFlowNode(statement);
+		if(statement == null){
+			return null;
+		}
+		return getLoopNestingForest(CommonQueries.getContainingFunction(statement)).getInnermostLoop(statement);
+	}
+
+	/**
+	 * Returns the number of loops containing the given statement (or the
+	 * statement containing the given data flow node)
+	 * 
+	 * @param statement
+	 * @return
+	 */
+	public static int getLoopDepth(Node statement) {
+		statement = toControlFlowNode(statement);
+		if(statement == null){
+			return 0;
+		}
+		return getLoopNestingForest(CommonQueries.getContainingFunction(statement)).getLoopDepth(statement);
+	}
+
+	/**
+	 * Returns true if the given statement (or the statement containing the
+	 * given data flow node) is in the loop with the given header
+	 * 
+	 * @param statement
+	 * @param header
+	 * @return
+	 */
+	public static boolean isInLoop(Node statement, Node header) {
+		statement = toControlFlowNode(statement);
+		if(statement == null){
+			return false;
+		}
+		return getLoopNestingForest(CommonQueries.getContainingFunction(statement)).isInLoop(statement, header);
+	}
+
+	/**
+	 * Discards all cached loop nesting forests
+	 */
+	public static void clearCache() {
+		forests.clear();
+	}
+
+	private static Node toControlFlowNode(Node node) {
+		if(node.taggedWith(XCSG.ControlFlow_Node)){
+			return node;
+		}
+		return CommonQueries.getContainingControlFlowNode(node);
+	}
+
+}
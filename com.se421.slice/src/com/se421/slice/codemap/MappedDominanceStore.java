@@ -0,0 +1,101 @@
+package com.se421.slice.codemap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only, memory mapped view of a {@link DominanceCache} file.
+ *
+ * Opening the store maps the file with {@link FileChannel#map} and indexes the
+ * position of each record; the records themselves stay in the page cache and
+ * {@link #get(DominanceCache.Fingerprint)} returns zero-copy views of them, so
+ * looking up the dominance relationships of a few functions does not load the
+ * whole file into the heap. Lookups are thread safe. The dominance analysis
+ * reads the normal relations it computes lazily, and with them the control
+ * dependence edges, from this store.
+ */
+public class MappedDominanceStore {
+
+	/**
+	 * The mapped file, never read through its own position
+	 */
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * Record positions by fingerprint
+	 */
+	private final Map<DominanceCache.Fingerprint, Integer> positions;
+
+	private MappedDominanceStore(MappedByteBuffer buffer, Map<DominanceCache.Fingerprint, Integer> positions) {
+		this.buffer = buffer;
+		this.positions = positions;
+	}
+
+	/**
+	 * Maps the given cache file
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be mapped or is not a current cache file
+	 */
+	public static MappedDominanceStore open(File file) throws IOException {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel()) {
+			if(channel.size() > Integer.MAX_VALUE){
+				throw new IOException("Dominance cache is too large to map: " + file);
+			}
+			// the mapping remains valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		ByteBuffer reader = buffer.duplicate();
+		if(reader.remaining() < 12 || reader.getInt() != DominanceCache.MAGIC || reader.getInt() != DominanceCache.VERSION){
+			throw new IOException("Not a current dominance cache: " + file);
+		}
+		Map<DominanceCache.Fingerprint, Integer> positions = new HashMap<DominanceCache.Fingerprint, Integer>();
+		try {
+			int count = reader.getInt();
+			for(int i=0; i<count; i++){
+				DominanceCache.Fingerprint fingerprint = new DominanceCache.Fingerprint(reader.getLong(), reader.getLong());
+				positions.put(fingerprint, reader.position());
+				DominanceRecord.skip(reader);
+			}
+		} catch (RuntimeException e){
+			// a truncated or corrupt file underflows or skips out of bounds
+			throw new IOException("Corrupt dominance cache: " + file, e);
+		}
+		return new MappedDominanceStore(buffer, positions);
+	}
+
+	/**
+	 * Returns a zero-copy view of the record stored for the given
+	 * fingerprint, or null
+	 *
+	 * @param fingerprint
+	 * @return
+	 */
+	public DominanceRecord get(DominanceCache.Fingerprint fingerprint) {
+		Integer position = positions.get(fingerprint);
+		if(position == null){
+			return null;
+		}
+		ByteBuffer reader = buffer.duplicate();
+		reader.position(position);
+		return DominanceRecord.map(reader);
+	}
+
+	/**
+	 * Returns the number of records in the store
+	 * @return
+	 */
+	public int size() {
+		return positions.size();
+	}
+
+}
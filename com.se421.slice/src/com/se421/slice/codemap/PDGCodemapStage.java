@@ -2,12 +2,21 @@ package com.se421.slice.codemap;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import com.ensoftcorp.atlas.core.db.graph.Graph;
 import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.set.AtlasSet;
 import com.ensoftcorp.atlas.core.indexing.providers.ToolboxIndexingStage;
 import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
 import com.se421.slice.analysis.DependenceGraph;
+import com.se421.slice.analysis.DependenceGraphCache;
+import com.se421.slice.analysis.ProgramDependenceGraph;
+import com.se421.slice.analysis.StatementIndex;
+import com.se421.slice.analysis.utilities.CommonQueries;
+import com.se421.slice.analysis.utilities.dominance.MasterNodeRegistry;
+import com.se421.slice.analysis.utilities.dominance.UniqueEntryExitControlFlowGraph;
 import com.se421.slice.log.Log;
+import com.se421.slice.preferences.SlicePreferences;
 
 /**
  * Builds the PDGs for each function
@@ -23,15 +32,48 @@ public class PDGCodemapStage implements ToolboxIndexingStage {
 
 	@Override
 	public void performIndexing(IProgressMonitor monitor) {
+		// forget results computed against the previous index
+		LoopAnalysis.clearCache();
+		DominanceAnalysis.clearCache();
+		DependenceGraphCache.clear();
+		StatementIndex.clearCache();
+		CommonQueries.clearCache();
+		
+		// register the master entry and exit nodes of the new index
+		MasterNodeRegistry.index();
+		UniqueEntryExitControlFlowGraph.clearCache();
+		
+		if(SlicePreferences.isLazyDominanceEnabled()){
+			// dominance relationships and dependence graphs are computed for
+			// each function when it is first queried
+			Log.info("Lazy dominance is enabled, skipping " + DominanceAnalysis.displayName());
+			return;
+		}
+		
 		// compute the dominance analysis relationships
 		Log.info(DominanceAnalysis.displayName() + "...");
 		DominanceAnalysis.performIndexing(monitor);
 		
-		// compute the program dependence graph
+		// compute the program dependence graph, the flow graphs are queried
+		// in parallel and the dependence edges are created serially
 		Log.info("Computing Program Dependence Graphs...");
-		for(Node function : Query.universe().nodes(XCSG.Function).eval().nodes()){
-			DependenceGraph.Factory.buildPDG(function);
-		}
+		AtlasSet<Node> functions = Query.universe().nodes(XCSG.Function).eval().nodes();
+		IndexingScheduler.run("Computing Program Dependence Graphs", functions, new IndexingScheduler.FunctionTask<Graph[]>(){
+			@Override
+			public long estimateCost(Node function) {
+				return IndexingScheduler.controlFlowSize(function) + IndexingScheduler.dataFlowSize(function);
+			}
+
+			@Override
+			public Graph[] compute(Node function) {
+				return new Graph[]{ DependenceGraph.Factory.getPDGControlFlowGraph(function), DependenceGraph.Factory.getPDGDataFlowGraph(function) };
+			}
+
+			@Override
+			public void commit(Node function, Graph[] flowGraphs) {
+				new ProgramDependenceGraph(flowGraphs[0], flowGraphs[1]);
+			}
+		}, SlicePreferences.getIndexingParallelism(), monitor);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.se421.slice.preferences;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import com.se421.slice.Activator;
+import com.se421.slice.analysis.utilities.dominance.DominatorAlgorithm;
+import com.se421.slice.log.Log;
+
+/**
+ * Preferences for the slicing toolbox
+ */
+public class SlicePreferences extends AbstractPreferenceInitializer {
+
+	private static boolean initialized = false;
+
+	/**
+	 * Configures the algorithm used to compute dominator and post-dominator trees
+	 */
+	public static final String DOMINATOR_ALGORITHM = "DOMINATOR_ALGORITHM";
+	public static final String DOMINATOR_ALGORITHM_DEFAULT = DominatorAlgorithm.AUTOMATIC.name();
+	private static DominatorAlgorithm dominatorAlgorithmValue = DominatorAlgorithm.valueOf(DOMINATOR_ALGORITHM_DEFAULT);
+
+	/**
+	 * Configures the number of worker threads used by the codemap stages, 1
+	 * indexes functions sequentially on the codemap thread
+	 */
+	public static final String INDEXING_PARALLELISM = "INDEXING_PARALLELISM";
+	public static final int INDEXING_PARALLELISM_DEFAULT = Runtime.getRuntime().availableProcessors();
+	private static int indexingParallelismValue = INDEXING_PARALLELISM_DEFAULT;
+
+	/**
+	 * Configures whether dominance relationships are cached on disk between
+	 * re-indexes
+	 */
+	public static final String DOMINANCE_CACHE = "DOMINANCE_CACHE";
+	public static final boolean DOMINANCE_CACHE_DEFAULT = true;
+	private static boolean dominanceCacheValue = DOMINANCE_CACHE_DEFAULT;
+
+	/**
+	 * Configures whether dominance relationships are computed for each
+	 * function on first use instead of for every function during indexing
+	 */
+	public static final String LAZY_DOMINANCE = "LAZY_DOMINANCE";
+	public static final boolean LAZY_DOMINANCE_DEFAULT = false;
+	private static boolean lazyDominanceValue = LAZY_DOMINANCE_DEFAULT;
+
+	/**
+	 * Configures whether dominance relationships are also indexed for the
+	 * control flow graph including exceptional control flow edges
+	 */
+	public static final String INCLUDE_EXCEPTIONAL_CONTROL_FLOW = "INCLUDE_EXCEPTIONAL_CONTROL_FLOW";
+	public static final boolean INCLUDE_EXCEPTIONAL_CONTROL_FLOW_DEFAULT = false;
+	private static boolean includeExceptionalControlFlowValue = INCLUDE_EXCEPTIONAL_CONTROL_FLOW_DEFAULT;
+
+	/**
+	 * Configures the number of dependence graphs kept in memory for the
+	 * smart views and taint graphs, 0 disables caching
+	 */
+	public static final String DEPENDENCE_GRAPH_CACHE_SIZE = "DEPENDENCE_GRAPH_CACHE_SIZE";
+	public static final int DEPENDENCE_GRAPH_CACHE_SIZE_DEFAULT = 64;
+	private static int dependenceGraphCacheSizeValue = DEPENDENCE_GRAPH_CACHE_SIZE_DEFAULT;
+
+	/**
+	 * Sets the algorithm used to compute dominator and post-dominator trees
+	 * @param algorithm
+	 */
+	public static void setDominatorAlgorithm(DominatorAlgorithm algorithm){
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(DOMINATOR_ALGORITHM, algorithm.name());
+		loadPreferences();
+	}
+
+	/**
+	 * Returns the algorithm used to compute dominator and post-dominator trees
+	 * @return
+	 */
+	public static DominatorAlgorithm getDominatorAlgorithm(){
+		if(!initialized){
+			loadPreferences();
+		}
+		return dominatorAlgorithmValue;
+	}
+
+	/**
+	 * Sets the number of worker threads used by the codemap stages
+	 * @param parallelism
+	 */
+	public static void setIndexingParallelism(int parallelism){
+		if(parallelism < 1){
+			String message = "Indexing parallelism must be at least 1";
+			IllegalArgumentException e = new IllegalArgumentException(message);
+			Log.error(message, e);
+			throw e;
+		}
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(INDEXING_PARALLELISM, parallelism);
+		loadPreferences();
+	}
+
+	/**
+	 * Returns the number of worker threads used by the codemap stages
+	 * @return
+	 */
+	public static int getIndexingParallelism(){
+		if(!initialized){
+			loadPreferences();
+		}
+		return indexingParallelismValue;
+	}
+
+	/**
+	 * Enables or disables the on-disk dominance cache
+	 * @param enabled
+	 */
+	public static void enableDominanceCache(boolean enabled){
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(DOMINANCE_CACHE, enabled);
+		loadPreferences();
+	}
+
+	/**
+	 * Returns true if dominance relationships are cached on disk between
+	 * re-indexes
+	 * @return
+	 */
+	public static boolean isDominanceCacheEnabled(){
+		if(!initialized){
+			loadPreferences();
+		}
+		return dominanceCacheValue;
+	}
+
+	/**
+	 * Enables or disables computing dominance relationships on first use
+	 * @param enabled
+	 */
+	public static void enableLazyDominance(boolean enabled){
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(LAZY_DOMINANCE, enabled);
+		loadPreferences();
+	}
+
+	/**
+	 * Returns true if dominance relationships are computed for each function
+	 * on first use instead of during indexing
+	 * @return
+	 */
+	public static boolean isLazyDominanceEnabled(){
+		if(!initialized){
+			loadPreferences();
+		}
+		return lazyDominanceValue;
+	}
+
+	/**
+	 * Enables or disables indexing dominance relationships of the exceptional
+	 * control flow graph
+	 * @param enabled
+	 */
+	public static void includeExceptionalControlFlow(boolean enabled){
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(INCLUDE_EXCEPTIONAL_CONTROL_FLOW, enabled);
+		loadPreferences();
+	}
+
+	/**
+	 * Returns true if dominance relationships are also indexed for the
+	 * control flow graph including exceptional control flow edges
+	 * @return
+	 */
+	public static boolean isExceptionalControlFlowIncluded(){
+		if(!initialized){
+			loadPreferences();
+		}
+		return includeExceptionalControlFlowValue;
+	}
+
+	/**
+	 * Sets the number of dependence graphs kept in memory
+	 * @param size
+	 */
+	public static void setDependenceGraphCacheSize(int size){
+		if(size < 0){
+			String message = "Dependence graph cache size must not be negative";
+			IllegalArgumentException e = new IllegalArgumentException(message);
+			Log.error(message, e);
+			throw e;
+		}
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(DEPENDENCE_GRAPH_CACHE_SIZE, size);
+		loadPreferences();
+	}
+
+	/**
+	 * Returns the number of dependence graphs kept in memory
+	 * @return
+	 */
+	public static int getDependenceGraphCacheSize(){
+		if(!initialized){
+			loadPreferences();
+		}
+		return dependenceGraphCacheSizeValue;
+	}
+
+	@Override
+	public void initializeDefaultPreferences() {
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setDefault(DOMINATOR_ALGORITHM, DOMINATOR_ALGORITHM_DEFAULT);
+		preferences.setDefault(INDEXING_PARALLELISM, INDEXING_PARALLELISM_DEFAULT);
+		preferences.setDefault(DOMINANCE_CACHE, DOMINANCE_CACHE_DEFAULT);
+		preferences.setDefault(LAZY_DOMINANCE, LAZY_DOMINANCE_DEFAULT);
+		preferences.setDefault(INCLUDE_EXCEPTIONAL_CONTROL_FLOW, INCLUDE_EXCEPTIONAL_CONTROL_FLOW_DEFAULT);
+		preferences.setDefault(DEPENDENCE_GRAPH_CACHE_SIZE, DEPENDENCE_GRAPH_CACHE_SIZE_DEFAULT);
+	}
+
+	/**
+	 * Restores the default preferences
+	 */
+	public static void restoreDefaults(){
+		IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+		preferences.setValue(DOMINATOR_ALGORITHM, DOMINATOR_ALGORITHM_DEFAULT);
+		preferences.setValue(INDEXING_PARALLELISM, INDEXING_PARALLELISM_DEFAULT);
+		preferences.setValue(DOMINANCE_CACHE, DOMINANCE_CACHE_DEFAULT);
+		preferences.setValue(LAZY_DOMINANCE, LAZY_DOMINANCE_DEFAULT);
+		preferences.setValue(INCLUDE_EXCEPTIONAL_CONTROL_FLOW, INCLUDE_EXCEPTIONAL_CONTROL_FLOW_DEFAULT);
+		preferences.setValue(DEPENDENCE_GRAPH_CACHE_SIZE, DEPENDENCE_GRAPH_CACHE_SIZE_DEFAULT);
+		loadPreferences();
+	}
+
+	/**
+	 * Loads or refreshes current preference values
+	 */
+	public static void loadPreferences() {
+		try {
+			IPreferenceStore preferences = Activator.getDefault().getPreferenceStore();
+			dominatorAlgorithmValue = DominatorAlgorithm.valueOf(preferences.getString(DOMINATOR_ALGORITHM));
+			indexingParallelismValue = Math.max(1, preferences.getInt(INDEXING_PARALLELISM));
+			dominanceCacheValue = preferences.getBoolean(DOMINANCE_CACHE);
+			lazyDominanceValue = preferences.getBoolean(LAZY_DOMINANCE);
+			includeExceptionalControlFlowValue = preferences.getBoolean(INCLUDE_EXCEPTIONAL_CONTROL_FLOW);
+			dependenceGraphCacheSizeValue = Math.max(0, preferences.getInt(DEPENDENCE_GRAPH_CACHE_SIZE));
+		} catch (Exception e){
+			Log.warning("Error accessing slice preferences, using defaults...", e);
+		}
+		initialized = true;
+	}
+
+}
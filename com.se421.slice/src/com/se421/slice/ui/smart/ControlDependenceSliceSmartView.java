@@ -12,7 +12,7 @@ public class ControlDependenceSliceSmartView extends DependenceSliceSmartView {
 	
 	@Override
 	protected DependenceGraph getDependenceGraph(Node function) {
-		return DependenceGraph.Factory.buildCDG(function);
+		return DependenceGraph.Factory.getCDG(function);
 	}
 
 }
\ No newline at end of file
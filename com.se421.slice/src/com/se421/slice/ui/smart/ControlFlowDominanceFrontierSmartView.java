@@ -1,7 +1,6 @@
 package com.se421.slice.ui.smart;
 
-import com.ensoftcorp.atlas.core.query.Q;
-import com.se421.slice.codemap.DominanceAnalysis;
+import com.se421.slice.codemap.DominanceAnalysis.Relation;
 
 public class ControlFlowDominanceFrontierSmartView extends ControlFlowDominanceSmartView {
 
@@ -11,8 +10,8 @@ public class ControlFlowDominanceFrontierSmartView extends ControlFlowDominanceS
 	}
 	
 	@Override
-	protected Q getDominanceEdges() {
-		return DominanceAnalysis.getDominanceFrontierEdges();
+	protected Relation getDominanceRelation() {
+		return Relation.DOMINANCE_FRONTIER;
 	}
 	
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.se421.slice.ui.smart;
 
+import java.util.EnumSet;
+
 import com.ensoftcorp.atlas.core.db.graph.Edge;
 import com.ensoftcorp.atlas.core.db.graph.Graph;
 import com.ensoftcorp.atlas.core.db.graph.Node;
@@ -20,12 +22,26 @@ import com.ensoftcorp.atlas.ui.selection.event.FrontierEdgeExploreEvent;
 import com.ensoftcorp.atlas.ui.selection.event.IAtlasSelectionEvent;
 import com.se421.slice.analysis.utilities.CommonQueries;
 import com.se421.slice.analysis.utilities.dominance.UniqueEntryExitControlFlowGraph;
+import com.se421.slice.codemap.DominanceAnalysis;
+import com.se421.slice.codemap.DominanceAnalysis.Relation;
+import com.se421.slice.preferences.SlicePreferences;
 
 public abstract class ControlFlowDominanceSmartView extends FilteringAtlasSmartViewScript implements IResizableScript, IExplorableScript {
 
-	protected abstract Q getDominanceEdges();
+	/**
+	 * Returns the dominance relation to show, the corresponding exceptional
+	 * relation is shown if exceptional control flow is included
+	 * @return
+	 */
+	protected abstract Relation getDominanceRelation();
 	
-	private static final boolean INCLUDE_EXCEPTIONAL_CONTROL_FLOW = false;
+	private Q getDominanceEdges(Q functions){
+		Relation relation = getDominanceRelation();
+		if(SlicePreferences.isExceptionalControlFlowIncluded()){
+			relation = relation.toExceptional();
+		}
+		return DominanceAnalysis.getDominance(functions, EnumSet.of(relation));
+	}
 	
 	@Override
 	protected String[] getSupportedNodeTags() {
@@ -53,17 +69,16 @@ public abstract class ControlFlowDominanceSmartView extends FilteringAtlasSmartV
 	}
 	
 	private Q getCFG(Q functions){
+		AtlasSet<Node> functionSet = functions.eval().nodes();
+		boolean includeExceptionalControlFlow = SlicePreferences.isExceptionalControlFlowIncluded();
+		if(functionSet.size() == 1){
+			// the cached graph can be used as is
+			return Common.toQ(UniqueEntryExitControlFlowGraph.getFunctionGraph(functionSet.one(), includeExceptionalControlFlow).getGraph());
+		}
 		AtlasSet<Node> nodes = new AtlasHashSet<Node>();
 		AtlasSet<Edge> edges = new AtlasHashSet<Edge>();
-		for(Node function : functions.eval().nodes()) {
-			Q cfg;
-			if(INCLUDE_EXCEPTIONAL_CONTROL_FLOW){
-				cfg = CommonQueries.excfg(function);
-			} else {
-				cfg = CommonQueries.cfg(function);
-			}
-			UniqueEntryExitControlFlowGraph ucfg = new UniqueEntryExitControlFlowGraph(cfg.eval(), true);
-			Graph graph = ucfg.getGraph();
+		for(Node function : functionSet) {
+			Graph graph = UniqueEntryExitControlFlowGraph.getFunctionGraph(function, includeExceptionalControlFlow).getGraph();
 			nodes.addAll(graph.nodes());
 			edges.addAll(graph.edges());
 		}
@@ -114,7 +129,7 @@ public abstract class ControlFlowDominanceSmartView extends FilteringAtlasSmartV
 			// just cfg nodes were selected
 			Q cfgs = getCFG(containingFunctions);
 			
-			Q dominanceEdges = getDominanceEdges();
+			Q dominanceEdges = getDominanceEdges(containingFunctions);
 			Q dominance = cfgs.retainNodes().induce(dominanceEdges);
 			
 			UnstyledFrontierResult frontier = computeFrontierResult(selectedStatements, dominance, reverse, forward);
@@ -140,7 +155,7 @@ public abstract class ControlFlowDominanceSmartView extends FilteringAtlasSmartV
 			
 			Q allCFGs = cfgs.union(selectedFunctionCFGs);
 
-			Q dominanceEdges = getDominanceEdges();
+			Q dominanceEdges = getDominanceEdges(containingFunctions.union(selectedFunctions));
 			Q dominance = allCFGs.retainNodes().induce(dominanceEdges);
 			
 			UnstyledFrontierResult frontier = computeFrontierResult(selectedStatements, dominance, reverse, forward);
@@ -1,7 +1,6 @@
 package com.se421.slice.ui.smart;
 
-import com.ensoftcorp.atlas.core.query.Q;
-import com.se421.slice.codemap.DominanceAnalysis;
+import com.se421.slice.codemap.DominanceAnalysis.Relation;
 
 public class ControlFlowDominanceTreeSmartView extends ControlFlowDominanceSmartView {
 
@@ -11,8 +10,8 @@ public class ControlFlowDominanceTreeSmartView extends ControlFlowDominanceSmart
 	}
 	
 	@Override
-	protected Q getDominanceEdges() {
-		return DominanceAnalysis.getDominatorTreeEdges();
+	protected Relation getDominanceRelation() {
+		return Relation.DOMINATOR_TREE;
 	}
 	
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 package com.se421.slice.ui.smart;
 
-import com.ensoftcorp.atlas.core.query.Q;
-import com.se421.slice.codemap.DominanceAnalysis;
+import com.se421.slice.codemap.DominanceAnalysis.Relation;
 
 public class ControlFlowPostDominanceFrontierSmartView extends ControlFlowDominanceSmartView {
 
@@ -11,8 +10,8 @@ public class ControlFlowPostDominanceFrontierSmartView extends ControlFlowDomina
 	}
 	
 	@Override
-	protected Q getDominanceEdges() {
-		return DominanceAnalysis.getPostDominanceFrontierEdges();
+	protected Relation getDominanceRelation() {
+		return Relation.POST_DOMINANCE_FRONTIER;
 	}
 	
 }
\ No newline at end of file
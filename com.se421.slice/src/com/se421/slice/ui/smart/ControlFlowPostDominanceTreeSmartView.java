@@ -1,7 +1,6 @@
 package com.se421.slice.ui.smart;
 
-import com.ensoftcorp.atlas.core.query.Q;
-import com.se421.slice.codemap.DominanceAnalysis;
+import com.se421.slice.codemap.DominanceAnalysis.Relation;
 
 public class ControlFlowPostDominanceTreeSmartView extends ControlFlowDominanceSmartView {
 
@@ -11,8 +10,8 @@ public class ControlFlowPostDominanceTreeSmartView extends ControlFlowDominanceS
 	}
 	
 	@Override
-	protected Q getDominanceEdges() {
-		return DominanceAnalysis.getPostDominatorTreeEdges();
+	protected Relation getDominanceRelation() {
+		return Relation.POST_DOMINATOR_TREE;
 	}
 	
 }
\ No newline at end of file
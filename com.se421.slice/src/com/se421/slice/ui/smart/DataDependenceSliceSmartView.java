@@ -12,7 +12,7 @@ public class DataDependenceSliceSmartView extends DependenceSliceSmartView {
 
 	@Override
 	protected DependenceGraph getDependenceGraph(Node function) {
-		return DependenceGraph.Factory.buildDDG(function);
+		return DependenceGraph.Factory.getDDG(function);
 	}
 
 }
\ No newline at end of file
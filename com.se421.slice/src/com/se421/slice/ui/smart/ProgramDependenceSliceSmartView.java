@@ -12,7 +12,7 @@ public class ProgramDependenceSliceSmartView extends DependenceSliceSmartView {
 	
 	@Override
 	protected DependenceGraph getDependenceGraph(Node function) {
-		return DependenceGraph.Factory.buildPDG(function);
+		return DependenceGraph.Factory.getPDG(function);
 	}
 	
 }
\ No newline at end of file